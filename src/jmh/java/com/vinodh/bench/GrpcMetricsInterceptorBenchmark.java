@@ -0,0 +1,116 @@
+package com.vinodh.bench;
+
+import com.vinodh.NotificationServiceGrpc;
+import com.vinodh.ProcessStatus;
+import com.vinodh.SNMPNotification;
+import com.vinodh.metrics.GrpcMetricsInterceptor;
+import io.grpc.Attributes;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message and per-call cost of {@link GrpcMetricsInterceptor} against the Prometheus registry used in
+ * production. {@code onMessageUninstrumented} is the same listener without the interceptor, for reference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GrpcMetricsInterceptorBenchmark {
+
+    private GrpcMetricsInterceptor interceptor;
+    private ServerCallHandler<SNMPNotification, ProcessStatus> handler;
+    private ServerCall.Listener<SNMPNotification> instrumented;
+    private ServerCall.Listener<SNMPNotification> uninstrumented;
+    private ServerCall<SNMPNotification, ProcessStatus> instrumentedCall;
+    private SNMPNotification request;
+    private ProcessStatus response;
+
+    // Captures the call the interceptor hands to the service
+    private ServerCall<SNMPNotification, ProcessStatus> lastCall;
+
+    @Setup
+    public void setUp() {
+        interceptor = new GrpcMetricsInterceptor(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        handler = (call, headers) -> {
+            lastCall = call;
+            return new ServerCall.Listener<>() {};
+        };
+        request = IngestFixture.notifications(1, 1)[0];
+        response = ProcessStatus.newBuilder().setSuccess(true).setMessage("Processed: device-0").build();
+
+        instrumented = interceptor.interceptCall(new NoopCall(), new Metadata(), handler);
+        instrumentedCall = lastCall;
+        uninstrumented = handler.startCall(new NoopCall(), new Metadata());
+    }
+
+    @Benchmark
+    public void onMessage() {
+        instrumented.onMessage(request);
+    }
+
+    @Benchmark
+    public void onMessageUninstrumented() {
+        uninstrumented.onMessage(request);
+    }
+
+    @Benchmark
+    public void sendMessage() {
+        instrumentedCall.sendMessage(response);
+    }
+
+    @Benchmark
+    public void callLifecycle() {
+        ServerCall.Listener<SNMPNotification> listener = interceptor.interceptCall(new NoopCall(), new Metadata(), handler);
+        listener.onMessage(request);
+        lastCall.close(Status.OK, new Metadata());
+    }
+
+    private static final class NoopCall extends ServerCall<SNMPNotification, ProcessStatus> {
+        @Override
+        public void request(int numMessages) {}
+
+        @Override
+        public void sendHeaders(Metadata headers) {}
+
+        @Override
+        public void sendMessage(ProcessStatus message) {}
+
+        @Override
+        public void close(Status status, Metadata trailers) {}
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return Attributes.EMPTY;
+        }
+
+        @Override
+        public MethodDescriptor<SNMPNotification, ProcessStatus> getMethodDescriptor() {
+            return NotificationServiceGrpc.getStreamNotificationsMethod();
+        }
+    }
+}
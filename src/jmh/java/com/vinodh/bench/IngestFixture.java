@@ -0,0 +1,294 @@
+package com.vinodh.bench;
+
+import ch.qos.logback.classic.Level;
+import com.vinodh.ProcessStatus;
+import com.vinodh.SNMPNotification;
+import com.vinodh.cluster.ClusterMembership;
+import com.vinodh.cluster.ShardRouter;
+import com.vinodh.entity.SNMPNotificationEntity;
+import com.vinodh.executor.IngestExecutor;
+import com.vinodh.grpc.AdaptiveConcurrencyLimiter;
+import com.vinodh.grpc.IngestFlowController;
+import com.vinodh.grpc.NotificationGrpcService;
+import com.vinodh.logging.HotPathLogger;
+import com.vinodh.metrics.TrapRateAnalytics;
+import com.vinodh.service.DeadLetterStore;
+import com.vinodh.service.InternDictionary;
+import com.vinodh.service.LatestStateCache;
+import com.vinodh.service.NotificationBatchWriter;
+import com.vinodh.service.NotificationIngestPipeline;
+import com.vinodh.service.NotificationProcessorService;
+import com.vinodh.service.NotificationRetryQueue;
+import com.vinodh.service.TimestampParser;
+import com.vinodh.service.TrapDeduplicator;
+import com.vinodh.service.TrapPriority;
+import com.vinodh.service.TrapPriorityClassifier;
+import com.vinodh.tracing.NotificationTracing;
+import com.vinodh.wal.NotificationWal;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds {@link NotificationGrpcService} with its collaborators wired by hand.
+ * {@code stub} replaces the processor with one that completes immediately; {@code in-memory} runs the
+ * real processor chain (parsing, interning, state cache, analytics) in front of a batch writer that
+ * acknowledges without Mongo.
+ */
+final class IngestFixture {
+
+    private IngestFixture() {}
+
+    static NotificationGrpcService service(String processor) {
+        // Benchmarks measure the logging calls, not console output
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        HotPathLogger hotLog = hotPathLogger(registry);
+
+        NotificationIngestPipeline pipeline = new NotificationIngestPipeline();
+        Wiring.set(pipeline, "processorService", "stub".equals(processor) ? new StubProcessor() : processor(registry, hotLog));
+        Wiring.set(pipeline, "ingestExecutor", Wiring.init(Wiring.set(Wiring.set(new IngestExecutor(),
+                "registry", registry), "mode", "device-lanes")));
+        Wiring.set(pipeline, "hotLog", hotLog);
+        TrapPriorityClassifier priorities = priorities(registry);
+        Wiring.set(pipeline, "priorities", priorities);
+        Wiring.init(Wiring.set(pipeline, "persistenceMode", "blocking"));
+
+        ShardRouter router = new ShardRouter();
+        Wiring.set(router, "pipeline", pipeline);
+        Wiring.set(router, "membership", Wiring.set(new ClusterMembership(), "enabled", false));
+        Wiring.set(router, "registry", registry);
+        Wiring.init(router);
+
+        NotificationGrpcService service = new NotificationGrpcService();
+        Wiring.set(service, "router", router);
+        Wiring.set(service, "limiter", limiter(registry));
+        Wiring.set(service, "priorities", priorities);
+        Wiring.set(service, "flowController", Wiring.init(Wiring.set(Wiring.set(Wiring.set(new IngestFlowController(),
+                "registry", registry), "perStreamWindow", 256), "globalWindow", 20000)));
+        Wiring.set(service, "tracing", Wiring.set(Wiring.set(Wiring.set(new NotificationTracing(),
+                "observationRegistry", ObservationRegistry.NOOP), "slowThresholdMs", 500L), "maxEventsPerSpan", 32));
+        return service;
+    }
+
+    static HotPathLogger hotPathLogger(MeterRegistry registry) {
+        HotPathLogger hotLog = new HotPathLogger();
+        Wiring.set(hotLog, "registry", registry);
+        Wiring.set(hotLog, "modeName", "rate-limited");
+        Wiring.set(hotLog, "maxPerInterval", 5);
+        Wiring.set(hotLog, "intervalMs", 10_000L);
+        Wiring.set(hotLog, "maxKeys", 10_000);
+        return Wiring.init(hotLog);
+    }
+
+    static TrapPriorityClassifier priorities(MeterRegistry registry) {
+        TrapPriorityClassifier priorities = new TrapPriorityClassifier();
+        Wiring.set(priorities, "registry", registry);
+        Wiring.set(priorities, "enabled", true);
+        Wiring.set(priorities, "criticalOids", "1.3.6.1.6.3.1.1.5.1,1.3.6.1.6.3.1.1.5.3");
+        Wiring.set(priorities, "bulkOids", "");
+        return Wiring.init(priorities);
+    }
+
+    static AdaptiveConcurrencyLimiter limiter(MeterRegistry registry) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        Wiring.set(limiter, "registry", registry);
+        Wiring.set(limiter, "enabled", true);
+        Wiring.set(limiter, "initialLimit", 1000);
+        Wiring.set(limiter, "minLimit", 50);
+        Wiring.set(limiter, "maxLimit", 20000);
+        Wiring.set(limiter, "tolerance", 1.5);
+        Wiring.set(limiter, "smoothing", 0.2);
+        Wiring.set(limiter, "updateIntervalMs", 100L);
+        Wiring.set(limiter, "baselineIntervals", 600);
+        Wiring.set(limiter, "streamAdmissionRatio", 0.8);
+        Wiring.set(limiter, "pushbackMinMs", 100L);
+        Wiring.set(limiter, "pushbackMaxMs", 5000L);
+        return Wiring.init(limiter);
+    }
+
+    static InternDictionary dictionary(MeterRegistry registry) {
+        InternDictionary dictionary = new InternDictionary();
+        Wiring.set(dictionary, "registry", registry);
+        Wiring.set(dictionary, "storeCompact", false);
+        Wiring.set(dictionary, "maxEntries", 100_000);
+        return Wiring.init(dictionary);
+    }
+
+    private static NotificationProcessorService processor(MeterRegistry registry, HotPathLogger hotLog) {
+        InternDictionary dictionary = dictionary(registry);
+
+        TimestampParser timestampParser = Wiring.init(Wiring.set(new TimestampParser(), "onInvalid", "reject"));
+
+        // Dedup eviction writes to Mongo, so it stays off here
+        TrapDeduplicator deduplicator = Wiring.init(Wiring.set(Wiring.set(new TrapDeduplicator(),
+                "registry", registry), "enabled", false));
+
+        LatestStateCache stateCache = new LatestStateCache();
+        Wiring.set(stateCache, "registry", registry);
+        Wiring.set(stateCache, "dictionary", dictionary);
+        Wiring.set(stateCache, "enabled", true);
+        Wiring.set(stateCache, "maxEntries", 500_000);
+        Wiring.set(stateCache, "maxMemoryMb", 256L);
+        Wiring.set(stateCache, "warmupHours", 0L);
+        Wiring.init(stateCache);
+
+        TrapRateAnalytics rateAnalytics = new TrapRateAnalytics();
+        Wiring.set(rateAnalytics, "registry", registry);
+        Wiring.set(rateAnalytics, "enabled", true);
+        Wiring.set(rateAnalytics, "windowSeconds", 60L);
+        Wiring.set(rateAnalytics, "buckets", 12);
+        Wiring.set(rateAnalytics, "sketchCapacity", 1024);
+        Wiring.set(rateAnalytics, "topN", 10);
+        Wiring.set(rateAnalytics, "publishIntervalMs", 5000L);
+        Wiring.init(rateAnalytics);
+
+        DeadLetterStore deadLetters = new DeadLetterStore();
+        Wiring.set(deadLetters, "dictionary", dictionary);
+        Wiring.set(deadLetters, "hotLog", hotLog);
+        Wiring.set(deadLetters, "registry", registry);
+        Wiring.set(deadLetters, "maxEntries", 10_000);
+        Wiring.init(deadLetters);
+
+        // The fake writer never fails, so the retrier thread stays off
+        NotificationRetryQueue retries = new NotificationRetryQueue();
+        Wiring.set(retries, "batchWriter", new InMemoryBatchWriter());
+        Wiring.set(retries, "deadLetters", deadLetters);
+        Wiring.set(retries, "registry", registry);
+        Wiring.set(retries, "enabled", false);
+        Wiring.set(retries, "maxAttempts", 5);
+        Wiring.set(retries, "initialBackoffMs", 200L);
+        Wiring.set(retries, "maxBackoffMs", 10_000L);
+        Wiring.set(retries, "batchSize", 500);
+        Wiring.set(retries, "capacity", 20_000);
+        Wiring.init(retries);
+
+        NotificationProcessorService processor = new NotificationProcessorService();
+        Wiring.set(processor, "retries", retries);
+        Wiring.set(processor, "wal", Wiring.set(new NotificationWal(), "enabled", false));
+        Wiring.set(processor, "deduplicator", deduplicator);
+        Wiring.set(processor, "dictionary", dictionary);
+        Wiring.set(processor, "timestampParser", timestampParser);
+        Wiring.set(processor, "stateCache", stateCache);
+        Wiring.set(processor, "rateAnalytics", rateAnalytics);
+        Wiring.set(processor, "hotLog", hotLog);
+        return processor;
+    }
+
+    static SNMPNotification[] notifications(int count, int devices) {
+        SNMPNotification[] notifications = new SNMPNotification[count];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            notifications[i] = SNMPNotification.newBuilder()
+                    .setDeviceId("device-" + (i % devices))
+                    .setOid("1.3.6.1.2.1.2.2.1." + (i % 16))
+                    .setValue("ifOperStatus=" + i)
+                    .setTimestamp(Long.toString(now + i))
+                    .build();
+        }
+        return notifications;
+    }
+
+    /** Processor that acknowledges every notification immediately. */
+    static final class StubProcessor extends NotificationProcessorService {
+        @Override
+        public CompletableFuture<Void> processNotification(String deviceId, String oid, String value, String timestamp,
+                                                           TrapPriority priority) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> handleError(String deviceId, String oid, String value, String timestamp, String error) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /** The fake repository: counts writes and acknowledges them as if the bulk insert succeeded. */
+    static final class InMemoryBatchWriter extends NotificationBatchWriter {
+        final AtomicLong written = new AtomicLong();
+
+        @Override
+        public CompletableFuture<Void> submit(SNMPNotificationEntity entity) {
+            written.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Client side of one stream as seen by the service. Credits requested through flow control are
+     * handed out by {@link #awaitCredit()}, like the transport would deliver queued messages.
+     */
+    static final class FakeStream extends ServerCallStreamObserver<ProcessStatus> {
+        private final AtomicInteger credits = new AtomicInteger();
+        final AtomicInteger responses = new AtomicInteger();
+        private volatile boolean done;
+
+        void awaitCredit() {
+            while (true) {
+                int available = credits.get();
+                if (available > 0 && credits.compareAndSet(available, available - 1)) {
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+        }
+
+        void awaitDone() {
+            while (!done) {
+                Thread.onSpinWait();
+            }
+        }
+
+        @Override
+        public void request(int count) {
+            credits.addAndGet(count);
+        }
+
+        @Override
+        public void onNext(ProcessStatus value) {
+            responses.incrementAndGet();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            done = true;
+        }
+
+        @Override
+        public void onCompleted() {
+            done = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {}
+
+        @Override
+        public void setCompression(String compression) {}
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {}
+
+        @Override
+        public void disableAutoRequest() {}
+
+        @Override
+        public void setMessageCompression(boolean enable) {}
+    }
+}
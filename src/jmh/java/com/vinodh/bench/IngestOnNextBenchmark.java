@@ -0,0 +1,63 @@
+package com.vinodh.bench;
+
+import com.vinodh.SNMPNotification;
+import com.vinodh.grpc.NotificationGrpcService;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code streamNotifications} end to end per notification: flow-control credits, executor hand-off,
+ * processing and the {@code ProcessStatus} response, over one stream of {@value #STREAM_LENGTH} traps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestOnNextBenchmark {
+
+    static final int STREAM_LENGTH = 4096;
+
+    @Param({"stub", "in-memory"})
+    public String processor;
+
+    @Param({"64"})
+    public int devices;
+
+    private NotificationGrpcService service;
+    private SNMPNotification[] notifications;
+
+    @Setup
+    public void setUp() {
+        service = IngestFixture.service(processor);
+        notifications = IngestFixture.notifications(STREAM_LENGTH, devices);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAM_LENGTH)
+    public int stream() {
+        IngestFixture.FakeStream client = new IngestFixture.FakeStream();
+        StreamObserver<SNMPNotification> requests = service.streamNotifications(client);
+        for (SNMPNotification notification : notifications) {
+            client.awaitCredit();
+            requests.onNext(notification);
+        }
+        requests.onCompleted();
+        client.awaitDone();
+        return client.responses.get();
+    }
+}
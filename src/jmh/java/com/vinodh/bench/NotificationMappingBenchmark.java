@@ -0,0 +1,57 @@
+package com.vinodh.bench;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.vinodh.SNMPNotification;
+import com.vinodh.entity.SNMPNotificationEntity;
+import com.vinodh.service.InternDictionary;
+import com.vinodh.service.TimestampParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wire decoding of {@code SNMPNotification} and its mapping to the stored entity, as done per trap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationMappingBenchmark {
+
+    private byte[] wire;
+    private InternDictionary dictionary;
+
+    @Setup
+    public void setUp() {
+        wire = IngestFixture.notifications(1, 1)[0].toByteArray();
+        dictionary = IngestFixture.dictionary(new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public SNMPNotification parse() throws InvalidProtocolBufferException {
+        return SNMPNotification.parseFrom(wire);
+    }
+
+    @Benchmark
+    public SNMPNotificationEntity parseAndMap() throws InvalidProtocolBufferException {
+        SNMPNotification notification = SNMPNotification.parseFrom(wire);
+        SNMPNotificationEntity entity = new SNMPNotificationEntity(notification.getDeviceId(), notification.getOid(),
+                notification.getValue(), TimestampParser.tryParse(notification.getTimestamp()), true, null);
+        entity.setId(new ObjectId().toHexString());
+        dictionary.compact(entity);
+        return entity;
+    }
+}
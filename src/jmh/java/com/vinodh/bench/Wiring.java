@@ -0,0 +1,33 @@
+package com.vinodh.bench;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+
+/**
+ * Hand wiring for benchmark fixtures: fills {@code @Autowired}/{@code @Value} fields and runs
+ * {@code @PostConstruct} methods, so beans run outside a Spring context and without Mongo.
+ */
+final class Wiring {
+
+    private Wiring() {}
+
+    static <T> T set(T bean, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(bean.getClass(), fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException(bean.getClass().getSimpleName() + " has no field " + fieldName);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, bean, value);
+        return bean;
+    }
+
+    static <T> T init(T bean) {
+        ReflectionUtils.doWithMethods(bean.getClass(), method -> {
+            ReflectionUtils.makeAccessible(method);
+            ReflectionUtils.invokeMethod(method, bean);
+        }, method -> method.isAnnotationPresent(PostConstruct.class));
+        return bean;
+    }
+}
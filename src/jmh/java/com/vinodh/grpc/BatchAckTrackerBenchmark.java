@@ -0,0 +1,74 @@
+package com.vinodh.grpc;
+
+import com.vinodh.BatchAck;
+import com.vinodh.FailureCode;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative ack emission of one batch stream while several executor threads finish batches at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class BatchAckTrackerBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private BatchAckTracker tracker;
+    private long sequence; // guarded by tracker
+    private final LongAdder acks = new LongAdder();
+
+    @Setup
+    public void setUp() {
+        tracker = new BatchAckTracker(new StreamObserver<>() {
+            @Override
+            public void onNext(BatchAck ack) {
+                acks.increment();
+            }
+
+            @Override
+            public void onError(Throwable t) {}
+
+            @Override
+            public void onCompleted() {}
+        });
+    }
+
+    // Sequences must reach the tracker consecutively, so they are taken under its lock
+    private BatchAckTracker.PendingBatch register() {
+        synchronized (tracker) {
+            return tracker.register(++sequence, BATCH_SIZE);
+        }
+    }
+
+    @Benchmark
+    public void completeBatch() {
+        BatchAckTracker.PendingBatch batch = register();
+        tracker.complete(batch);
+    }
+
+    @Benchmark
+    public void completeBatchWithFailure() {
+        BatchAckTracker.PendingBatch batch = register();
+        batch.fail(BATCH_SIZE - 1, FailureCode.VALIDATION_ERROR);
+        tracker.complete(batch);
+    }
+}
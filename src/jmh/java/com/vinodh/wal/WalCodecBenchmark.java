@@ -0,0 +1,52 @@
+package com.vinodh.wal;
+
+import com.vinodh.entity.SNMPNotificationEntity;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record encoding of the write-ahead log, paid per trap when {@code traps.wal.enabled} is set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalCodecBenchmark {
+
+    private SNMPNotificationEntity entity;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        Instant now = Instant.now();
+        entity = new SNMPNotificationEntity("device-0", "1.3.6.1.2.1.2.2.1.8", "ifOperStatus=2", now, true, null);
+        entity.setId(new ObjectId().toHexString());
+        entity.setFirstSeen(now);
+        entity.setLastSeen(now);
+        payload = NotificationWal.encode(entity);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return NotificationWal.encode(entity);
+    }
+
+    @Benchmark
+    public SNMPNotificationEntity decode() {
+        return NotificationWal.decode(payload);
+    }
+}
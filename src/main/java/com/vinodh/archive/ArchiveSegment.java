@@ -0,0 +1,492 @@
+package com.vinodh.archive;
+
+import com.vinodh.entity.SNMPNotificationEntity;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One immutable, columnar archive segment file, read through a read-only memory mapping.
+ * <p>
+ * Layout: a header with the row count and the min/max of timestamp, id and deviceId, a column
+ * directory, then one Deflate-compressed block per column. Rows are sorted by {@code (timestamp, id)}.
+ * Timestamps are delta-encoded varints, deviceId and OID are dictionary-encoded, and the other
+ * columns are varints or length-prefixed strings. The header alone is enough to skip a segment;
+ * the columns are only inflated when a query needs rows, and kept softly reachable afterwards.
+ */
+final class ArchiveSegment {
+
+    private static final int MAGIC = 0x534E4152; // "SNAR"
+    private static final int VERSION = 1;
+
+    private enum Column { ID, TIMESTAMP, DEVICE, OID, VALUE, PROCESSED, ERROR, OCCURRENCES, FIRST_SEEN, LAST_SEEN }
+
+    final long id;
+    final Path path;
+    final int rows;
+    final long minTimestamp;
+    final long maxTimestamp;
+    final String minId;
+    final String maxId;
+    final String minDevice;
+    final String maxDevice;
+    final long bytes;
+
+    private final MappedByteBuffer buffer;
+    private final int[] columnOffsets = new int[Column.values().length];
+    private final int[] compressedLengths = new int[Column.values().length];
+    private final int[] rawLengths = new int[Column.values().length];
+    private volatile SoftReference<Rows> decoded = new SoftReference<>(null);
+
+    private ArchiveSegment(long id, Path path, MappedByteBuffer buffer, long bytes) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+        this.bytes = bytes;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not an archive segment: " + path);
+        }
+        ByteBuffer header = buffer.duplicate().position(8);
+        rows = header.getInt();
+        minTimestamp = header.getLong();
+        maxTimestamp = header.getLong();
+        minId = readString(header);
+        maxId = readString(header);
+        minDevice = readString(header);
+        maxDevice = readString(header);
+        int offset = header.position() + Column.values().length * 2 * Integer.BYTES;
+        for (int c = 0; c < Column.values().length; c++) {
+            rawLengths[c] = header.getInt();
+            compressedLengths[c] = header.getInt();
+            columnOffsets[c] = offset;
+            offset += compressedLengths[c];
+        }
+    }
+
+    static Path fileFor(Path directory, long id) {
+        return directory.resolve(String.format("seg-%020d.arc", id));
+    }
+
+    static long idOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("seg-".length(), name.length() - ".arc".length()));
+    }
+
+    static boolean isSegmentFile(Path file) {
+        return file.getFileName().toString().matches("seg-\\d{20}\\.arc");
+    }
+
+    static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            return new ArchiveSegment(idOf(path), path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size), size);
+        }
+    }
+
+    /**
+     * Writes the entities as a new segment and opens it. The file is written under a temporary name,
+     * forced to disk and then renamed, so a crash never leaves a partial segment behind.
+     * Entities must have a timestamp, an id and plain (not dictionary-coded) deviceId and OID.
+     */
+    static ArchiveSegment write(Path directory, long id, List<SNMPNotificationEntity> entities, int compressionLevel) throws IOException {
+        SNMPNotificationEntity[] sorted = entities.toArray(SNMPNotificationEntity[]::new);
+        Arrays.sort(sorted, (a, b) -> {
+            int byTime = a.getTimestamp().compareTo(b.getTimestamp());
+            return byTime != 0 ? byTime : a.getId().compareTo(b.getId());
+        });
+        long minTimestamp = sorted[0].getTimestamp().toEpochMilli();
+        long maxTimestamp = sorted[sorted.length - 1].getTimestamp().toEpochMilli();
+
+        Encoder[] columns = new Encoder[Column.values().length];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = new Encoder();
+        }
+        Dictionary devices = new Dictionary(sorted, SNMPNotificationEntity::getDeviceId);
+        Dictionary oids = new Dictionary(sorted, SNMPNotificationEntity::getOid);
+        devices.writeTo(columns[Column.DEVICE.ordinal()]);
+        oids.writeTo(columns[Column.OID.ordinal()]);
+        String minId = sorted[0].getId();
+        String maxId = minId;
+        long previous = minTimestamp;
+        for (SNMPNotificationEntity entity : sorted) {
+            long timestamp = entity.getTimestamp().toEpochMilli();
+            columns[Column.ID.ordinal()].string(entity.getId());
+            columns[Column.TIMESTAMP.ordinal()].varLong(timestamp - previous);
+            columns[Column.DEVICE.ordinal()].varLong(devices.code(entity.getDeviceId()));
+            columns[Column.OID.ordinal()].varLong(oids.code(entity.getOid()));
+            columns[Column.VALUE.ordinal()].string(entity.getValue());
+            columns[Column.PROCESSED.ordinal()].varLong(entity.isProcessed() ? 1 : 0);
+            columns[Column.ERROR.ordinal()].string(entity.getErrorMessage());
+            columns[Column.OCCURRENCES.ordinal()].varLong(entity.getOccurrenceCount());
+            columns[Column.FIRST_SEEN.ordinal()].relativeInstant(entity.getFirstSeen(), timestamp);
+            columns[Column.LAST_SEEN.ordinal()].relativeInstant(entity.getLastSeen(), timestamp);
+            previous = timestamp;
+            minId = entity.getId().compareTo(minId) < 0 ? entity.getId() : minId;
+            maxId = entity.getId().compareTo(maxId) > 0 ? entity.getId() : maxId;
+        }
+
+        byte[][] compressed = new byte[columns.length][];
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            for (int c = 0; c < columns.length; c++) {
+                compressed[c] = deflate(deflater, columns[c]);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        Encoder header = new Encoder();
+        header.fixedInt(MAGIC).fixedInt(VERSION).fixedInt(sorted.length)
+                .fixedLong(minTimestamp).fixedLong(maxTimestamp)
+                .fixedString(minId).fixedString(maxId)
+                .fixedString(devices.first()).fixedString(devices.last());
+        for (int c = 0; c < columns.length; c++) {
+            header.fixedInt(columns[c].size).fixedInt(compressed[c].length);
+        }
+
+        Path target = fileFor(directory, id);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(header.bytes, 0, header.size));
+            for (byte[] block : compressed) {
+                channel.write(ByteBuffer.wrap(block));
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        return open(target);
+    }
+
+    /** Whether the segment may hold rows of the device, judged from the header's min/max. */
+    boolean mayContainDevice(String deviceId) {
+        return minDevice != null && deviceId.compareTo(minDevice) >= 0 && deviceId.compareTo(maxDevice) <= 0;
+    }
+
+    boolean overlaps(Instant from, Instant to) {
+        return (from == null || maxTimestamp >= from.toEpochMilli()) && (to == null || minTimestamp < to.toEpochMilli());
+    }
+
+    boolean mayContainId(String id) {
+        return id.compareTo(minId) >= 0 && id.compareTo(maxId) <= 0;
+    }
+
+    /** All rows in {@code (timestamp, id)} order, inflated on first use. */
+    Rows rows() {
+        Rows rows = decoded.get();
+        if (rows == null) {
+            rows = decode();
+            decoded = new SoftReference<>(rows);
+        }
+        return rows;
+    }
+
+    private Rows decode() {
+        Inflater inflater = new Inflater();
+        try {
+            Decoder ids = inflate(inflater, Column.ID);
+            Decoder timestamps = inflate(inflater, Column.TIMESTAMP);
+            Decoder devices = inflate(inflater, Column.DEVICE);
+            Decoder oids = inflate(inflater, Column.OID);
+            Decoder values = inflate(inflater, Column.VALUE);
+            Decoder processed = inflate(inflater, Column.PROCESSED);
+            Decoder errors = inflate(inflater, Column.ERROR);
+            Decoder occurrences = inflate(inflater, Column.OCCURRENCES);
+            Decoder firstSeen = inflate(inflater, Column.FIRST_SEEN);
+            Decoder lastSeen = inflate(inflater, Column.LAST_SEEN);
+
+            Rows result = new Rows(rows, devices.dictionary(), oids.dictionary());
+            long timestamp = minTimestamp;
+            for (int row = 0; row < rows; row++) {
+                timestamp += timestamps.varLong();
+                result.ids[row] = ids.string();
+                result.timestamps[row] = timestamp;
+                result.devices[row] = (int) devices.varLong();
+                result.oids[row] = (int) oids.varLong();
+                result.values[row] = values.string();
+                result.processed[row] = processed.varLong() == 1;
+                result.errors[row] = errors.string();
+                result.occurrences[row] = (int) occurrences.varLong();
+                result.firstSeen[row] = firstSeen.relativeInstant(timestamp);
+                result.lastSeen[row] = lastSeen.relativeInstant(timestamp);
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt archive segment " + path, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private Decoder inflate(Inflater inflater, Column column) throws DataFormatException {
+        int c = column.ordinal();
+        byte[] raw = new byte[rawLengths[c]];
+        inflater.reset();
+        inflater.setInput(buffer.slice(columnOffsets[c], compressedLengths[c]));
+        int length = 0;
+        while (length < raw.length) {
+            int inflated = inflater.inflate(raw, length, raw.length - length);
+            if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                throw new DataFormatException("Column " + column + " is truncated");
+            }
+            length += inflated;
+        }
+        return new Decoder(raw);
+    }
+
+    private static byte[] deflate(Deflater deflater, Encoder column) {
+        deflater.reset();
+        deflater.setInput(column.bytes, 0, column.size);
+        deflater.finish();
+        Encoder out = new Encoder();
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            out.raw(chunk, length);
+        }
+        return Arrays.copyOf(out.bytes, out.size);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private static String readString(ByteBuffer header) {
+        int length = header.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        header.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /** Decoded columns of a segment; row {@code i} of every array belongs to the same notification. */
+    static final class Rows {
+        final int size;
+        final String[] deviceDictionary;
+        final String[] oidDictionary;
+        final String[] ids;
+        final long[] timestamps;
+        final int[] devices;
+        final int[] oids;
+        final String[] values;
+        final boolean[] processed;
+        final String[] errors;
+        final int[] occurrences;
+        final Instant[] firstSeen;
+        final Instant[] lastSeen;
+
+        private Rows(int size, String[] deviceDictionary, String[] oidDictionary) {
+            this.size = size;
+            this.deviceDictionary = deviceDictionary;
+            this.oidDictionary = oidDictionary;
+            ids = new String[size];
+            timestamps = new long[size];
+            devices = new int[size];
+            oids = new int[size];
+            values = new String[size];
+            processed = new boolean[size];
+            errors = new String[size];
+            occurrences = new int[size];
+            firstSeen = new Instant[size];
+            lastSeen = new Instant[size];
+        }
+
+        SNMPNotificationEntity entity(int row) {
+            SNMPNotificationEntity entity = new SNMPNotificationEntity(deviceDictionary[devices[row]], oidDictionary[oids[row]],
+                    values[row], Instant.ofEpochMilli(timestamps[row]), processed[row], errors[row]);
+            entity.setId(ids[row]);
+            entity.setOccurrenceCount(occurrences[row]);
+            entity.setFirstSeen(firstSeen[row]);
+            entity.setLastSeen(lastSeen[row]);
+            return entity;
+        }
+    }
+
+    /** Sorted distinct values of a string column; rows store their index. */
+    private static final class Dictionary {
+        private final String[] values;
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final boolean hasNull;
+
+        Dictionary(SNMPNotificationEntity[] entities, Function<SNMPNotificationEntity, String> field) {
+            TreeSet<String> distinct = new TreeSet<>();
+            boolean nulls = false;
+            for (SNMPNotificationEntity entity : entities) {
+                String value = field.apply(entity);
+                if (value == null) {
+                    nulls = true;
+                } else {
+                    distinct.add(value);
+                }
+            }
+            hasNull = nulls;
+            values = distinct.toArray(String[]::new);
+            for (int i = 0; i < values.length; i++) {
+                codes.put(values[i], i);
+            }
+        }
+
+        // Null is stored as the code after the last value
+        int code(String value) {
+            return value == null ? values.length : codes.get(value);
+        }
+
+        String first() {
+            return values.length == 0 ? null : values[0];
+        }
+
+        String last() {
+            return values.length == 0 ? null : values[values.length - 1];
+        }
+
+        void writeTo(Encoder out) {
+            out.varLong(values.length + (hasNull ? 1 : 0));
+            for (String value : values) {
+                out.string(value);
+            }
+            if (hasNull) {
+                out.string(null);
+            }
+        }
+    }
+
+    /** Growable byte array with the varint, string and fixed-width encodings used by segments. */
+    private static final class Encoder {
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        Encoder raw(byte[] source, int length) {
+            ensure(length);
+            System.arraycopy(source, 0, bytes, size, length);
+            size += length;
+            return this;
+        }
+
+        // Zigzag varint, so small negative deltas stay short
+        Encoder varLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            ensure(10);
+            while ((zigzag & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            bytes[size++] = (byte) zigzag;
+            return this;
+        }
+
+        // Length + 1 as a varint, 0 for null
+        Encoder string(String value) {
+            if (value == null) {
+                return varLong(0);
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varLong(utf8.length + 1L);
+            return raw(utf8, utf8.length);
+        }
+
+        // Offset from the row's timestamp, shifted by one when non-negative so that 0 means null
+        Encoder relativeInstant(Instant value, long timestamp) {
+            if (value == null) {
+                return varLong(0);
+            }
+            long offset = value.toEpochMilli() - timestamp;
+            return varLong(offset >= 0 ? offset + 1 : offset);
+        }
+
+        Encoder fixedInt(int value) {
+            ensure(Integer.BYTES);
+            ByteBuffer.wrap(bytes, size, Integer.BYTES).putInt(value);
+            size += Integer.BYTES;
+            return this;
+        }
+
+        Encoder fixedLong(long value) {
+            ensure(Long.BYTES);
+            ByteBuffer.wrap(bytes, size, Long.BYTES).putLong(value);
+            size += Long.BYTES;
+            return this;
+        }
+
+        Encoder fixedString(String value) {
+            if (value == null) {
+                return fixedInt(-1);
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            fixedInt(utf8.length);
+            return raw(utf8, utf8.length);
+        }
+    }
+
+    private static final class Decoder {
+        private final byte[] bytes;
+        private int position;
+
+        Decoder(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long varLong() {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        String string() {
+            int length = (int) varLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        Instant relativeInstant(long timestamp) {
+            long offset = varLong();
+            if (offset == 0) {
+                return null;
+            }
+            return Instant.ofEpochMilli(timestamp + (offset > 0 ? offset - 1 : offset));
+        }
+
+        String[] dictionary() {
+            String[] values = new String[(int) varLong()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = string();
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.vinodh.archive;
+
+import com.vinodh.entity.SNMPNotificationEntity;
+import com.vinodh.service.InternDictionary;
+import com.vinodh.service.NotificationFilter;
+import com.vinodh.service.NotificationQueryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Cold tier of {@code snmp_notifications}: compressed, columnar segment files on local disk.
+ * With {@code traps.archive.enabled}, a background job moves notifications older than
+ * {@code traps.archive.age-hours} out of Mongo into a new {@link ArchiveSegment}, oldest first, and
+ * deletes them from the collection once the segment is on disk. Segments are immutable and memory-mapped;
+ * {@link NotificationQueryService} merges them into its results, using each segment's time, id and device
+ * ranges to skip the ones a query cannot match. Archived notifications are read-only.
+ */
+@Service
+public class NotificationArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationArchive.class);
+
+    private static final int DELETE_CHUNK = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private InternDictionary dictionary;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${traps.archive.directory:data/archive}")
+    private String directory;
+
+    @Value("${traps.archive.age-hours:168}")
+    private long ageHours;
+
+    @Value("${traps.archive.interval-minutes:10}")
+    private long intervalMinutes;
+
+    @Value("${traps.archive.max-segment-rows:100000}")
+    private int maxSegmentRows;
+
+    @Value("${traps.archive.compression-level:6}")
+    private int compressionLevel;
+
+    private Path archiveDir;
+    private final ConcurrentSkipListMap<Long, ArchiveSegment> segments = new ConcurrentSkipListMap<>();
+    private ScheduledExecutorService tiering;
+    private volatile boolean running;
+    // Segment whose notifications may still be in Mongo; touched only by the tiering thread after start
+    private ArchiveSegment pendingDelete;
+
+    private Counter archived;
+    private Counter segmentsScanned;
+    private Counter segmentsSkipped;
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        archiveDir = Paths.get(directory);
+        Files.createDirectories(archiveDir);
+        try (Stream<Path> files = Files.list(archiveDir)) {
+            for (Path file : files.toList()) {
+                if (ArchiveSegment.isSegmentFile(file)) {
+                    ArchiveSegment segment = ArchiveSegment.open(file);
+                    segments.put(segment.id, segment);
+                } else if (file.getFileName().toString().endsWith(".tmp")) {
+                    // Left by a crash during a write; its notifications are still in Mongo
+                    Files.delete(file);
+                }
+            }
+        }
+
+        archived = Counter.builder("snmp_archive_archived")
+                .description("Notifications moved from Mongo into archive segments")
+                .register(registry);
+        segmentsScanned = Counter.builder("snmp_archive_segments_scanned")
+                .description("Archive segments read by queries")
+                .register(registry);
+        segmentsSkipped = Counter.builder("snmp_archive_segments_skipped")
+                .description("Archive segments skipped by queries from their time, id and device ranges")
+                .register(registry);
+        Gauge.builder("snmp_archive_segments", segments, Map::size)
+                .description("Archive segment files on disk")
+                .register(registry);
+        Gauge.builder("snmp_archive_bytes", segments, s -> s.values().stream().mapToLong(segment -> segment.bytes).sum())
+                .baseUnit("bytes")
+                .description("Size of the archive segment files")
+                .register(registry);
+
+        running = true;
+        tiering = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("archive-tiering").daemon(true).factory());
+        if (!segments.isEmpty()) {
+            // The newest segment may have been written without its notifications being deleted from Mongo
+            pendingDelete = segments.lastEntry().getValue();
+            tiering.execute(() -> {
+                try {
+                    finishPendingDelete();
+                } catch (Exception e) {
+                    log.error("❌ Failed to remove archived notifications from Mongo, retrying on the next run: {}", e.getMessage(), e);
+                }
+            });
+        }
+        tiering.scheduleWithFixedDelay(this::tier, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        log.info("🧊 Archive enabled in {}: {} segment(s), notifications older than {}h are tiered every {} min",
+                archiveDir.toAbsolutePath(), segments.size(), ageHours, intervalMinutes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Moves everything past the age limit, one segment at a time
+    private void tier() {
+        try {
+            Instant cutoff = Instant.now().minus(Duration.ofHours(ageHours));
+            // Otherwise the rows left behind would be selected again and archived into a second segment
+            finishPendingDelete();
+            while (running) {
+                // Served by the (timestamp, _id) index
+                Query query = Query.query(Criteria.where("timestamp").lt(cutoff))
+                        .with(Sort.by(Sort.Direction.ASC, "timestamp", "_id"))
+                        .limit(maxSegmentRows);
+                List<SNMPNotificationEntity> batch = mongoTemplate.find(query, SNMPNotificationEntity.class);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                // Segments hold plain values so they stay readable without the dictionary
+                batch.forEach(dictionary::resolve);
+                long id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+                ArchiveSegment segment = ArchiveSegment.write(archiveDir, id, batch, compressionLevel);
+                segments.put(segment.id, segment);
+                pendingDelete = segment;
+                finishPendingDelete();
+                archived.increment(batch.size());
+                log.info("🧊 Archived {} notifications older than {} into segment {} ({} KB)",
+                        batch.size(), cutoff, segment.id, segment.bytes / 1024);
+                if (batch.size() < maxSegmentRows) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("❌ Archive tiering failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Deletes the last segment's notifications from Mongo; it stays pending if the delete throws
+    private void finishPendingDelete() {
+        if (pendingDelete != null) {
+            removeFromMongo(pendingDelete);
+            pendingDelete = null;
+        }
+    }
+
+    private void removeFromMongo(ArchiveSegment segment) {
+        String[] ids = segment.rows().ids;
+        long removed = 0;
+        for (int from = 0; from < ids.length; from += DELETE_CHUNK) {
+            List<String> chunk = Arrays.asList(ids).subList(from, Math.min(from + DELETE_CHUNK, ids.length));
+            removed += mongoTemplate.remove(Query.query(Criteria.where("_id").in(chunk)), SNMPNotificationEntity.class)
+                    .getDeletedCount();
+        }
+        log.debug("🧊 Removed {} archived notifications of segment {} from Mongo", removed, segment.id);
+    }
+
+    /**
+     * Up to {@code limit} archived notifications matching {@code filter} that come after {@code after}
+     * in the given order. Segments are visited in that order, so the scan stops as soon as no further
+     * segment can hold a better row.
+     * @throws IllegalArgumentException if the OID prefix is malformed
+     */
+    public List<SNMPNotificationEntity> find(NotificationFilter filter, NotificationQueryService.SortKey sortKey,
+                                             NotificationQueryService.Keyset after, Sort.Direction direction, int limit) {
+        if (!enabled || segments.isEmpty()) {
+            return List.of();
+        }
+        String oidPrefix = null;
+        if (filter.oidPrefix() != null) {
+            int[] arcs = InternDictionary.parseArcs(filter.oidPrefix());
+            if (arcs == null) {
+                throw new IllegalArgumentException("Malformed OID prefix: " + filter.oidPrefix());
+            }
+            oidPrefix = InternDictionary.formatArcs(arcs);
+        }
+        boolean asc = direction == Sort.Direction.ASC;
+        boolean byTime = sortKey == NotificationQueryService.SortKey.TIMESTAMP;
+        Comparator<SNMPNotificationEntity> order = NotificationQueryService.ordering(sortKey, direction);
+
+        List<ArchiveSegment> candidates = new ArrayList<>();
+        for (ArchiveSegment segment : segments.values()) {
+            if (mayMatch(segment, filter, after, byTime, asc)) {
+                candidates.add(segment);
+            } else {
+                segmentsSkipped.increment();
+            }
+        }
+        // Visit segments by the best row they could hold
+        Comparator<ArchiveSegment> visit = byTime
+                ? Comparator.comparingLong(segment -> asc ? segment.minTimestamp : -segment.maxTimestamp)
+                : Comparator.comparing(segment -> asc ? segment.minId : segment.maxId);
+        candidates.sort(byTime || asc ? visit : visit.reversed());
+
+        // Worst kept row on top
+        PriorityQueue<SNMPNotificationEntity> best = new PriorityQueue<>(order.reversed());
+        for (ArchiveSegment segment : candidates) {
+            if (best.size() >= limit && cannotImprove(segment, best.peek(), byTime, asc)) {
+                segmentsSkipped.increment();
+                continue;
+            }
+            segmentsScanned.increment();
+            ArchiveSegment.Rows rows = segment.rows();
+            boolean[] oidMatches = oidPrefix == null ? null : matchingOids(rows.oidDictionary, oidPrefix);
+            int start = filter.from() == null ? 0 : lowerBound(rows.timestamps, filter.from().toEpochMilli());
+            for (int row = start; row < rows.size; row++) {
+                if (filter.to() != null && rows.timestamps[row] >= filter.to().toEpochMilli()) {
+                    break;
+                }
+                if ((filter.deviceId() != null && !filter.deviceId().equals(rows.deviceDictionary[rows.devices[row]]))
+                        || (oidMatches != null && !oidMatches[rows.oids[row]])
+                        || (filter.processed() != null && filter.processed() != rows.processed[row])
+                        || (after != null && !isAfter(rows, row, after, byTime, asc))) {
+                    continue;
+                }
+                SNMPNotificationEntity entity = rows.entity(row);
+                if (best.size() < limit) {
+                    best.add(entity);
+                } else if (order.compare(entity, best.peek()) < 0) {
+                    best.poll();
+                    best.add(entity);
+                }
+            }
+        }
+        List<SNMPNotificationEntity> result = new ArrayList<>(best);
+        result.sort(order);
+        return result;
+    }
+
+    /** The archived notification with this id, if any. */
+    public Optional<SNMPNotificationEntity> findById(String id) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        for (ArchiveSegment segment : segments.descendingMap().values()) {
+            if (!segment.mayContainId(id)) {
+                continue;
+            }
+            ArchiveSegment.Rows rows = segment.rows();
+            for (int row = 0; row < rows.size; row++) {
+                if (id.equals(rows.ids[row])) {
+                    return Optional.of(rows.entity(row));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Every archived notification after {@code after}, in order, read {@code pageSize} rows at a time. */
+    public Stream<SNMPNotificationEntity> stream(NotificationQueryService.SortKey sortKey, NotificationQueryService.Keyset after,
+                                                 Sort.Direction direction, int pageSize) {
+        if (!enabled || segments.isEmpty()) {
+            return Stream.empty();
+        }
+        NotificationFilter all = new NotificationFilter(null, null, null, null, null);
+        Iterator<SNMPNotificationEntity> pages = new Iterator<>() {
+            private NotificationQueryService.Keyset last = after;
+            private Iterator<SNMPNotificationEntity> page = List.<SNMPNotificationEntity>of().iterator();
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !exhausted) {
+                    List<SNMPNotificationEntity> next = find(all, sortKey, last, direction, pageSize);
+                    exhausted = next.size() < pageSize;
+                    if (!next.isEmpty()) {
+                        last = NotificationQueryService.Keyset.of(next.get(next.size() - 1));
+                    }
+                    page = next.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public SNMPNotificationEntity next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED), false);
+    }
+
+    private static boolean mayMatch(ArchiveSegment segment, NotificationFilter filter, NotificationQueryService.Keyset after,
+                                    boolean byTime, boolean asc) {
+        if (!segment.overlaps(filter.from(), filter.to())) {
+            return false;
+        }
+        if (filter.deviceId() != null && !segment.mayContainDevice(filter.deviceId())) {
+            return false;
+        }
+        if (after == null) {
+            return true;
+        }
+        if (byTime) {
+            long cursor = after.timestamp() == null ? Long.MIN_VALUE : after.timestamp().toEpochMilli();
+            return asc ? segment.maxTimestamp >= cursor : segment.minTimestamp <= cursor;
+        }
+        return asc ? segment.maxId.compareTo(after.id()) > 0 : segment.minId.compareTo(after.id()) < 0;
+    }
+
+    // True when every row of the segment sorts after the worst row already kept
+    private static boolean cannotImprove(ArchiveSegment segment, SNMPNotificationEntity worst, boolean byTime, boolean asc) {
+        if (byTime) {
+            long timestamp = worst.getTimestamp().toEpochMilli();
+            return asc ? segment.minTimestamp > timestamp : segment.maxTimestamp < timestamp;
+        }
+        return asc ? segment.minId.compareTo(worst.getId()) > 0 : segment.maxId.compareTo(worst.getId()) < 0;
+    }
+
+    private static boolean isAfter(ArchiveSegment.Rows rows, int row, NotificationQueryService.Keyset after,
+                                   boolean byTime, boolean asc) {
+        int compared = 0;
+        if (byTime && after.timestamp() != null) {
+            compared = Long.compare(rows.timestamps[row], after.timestamp().toEpochMilli());
+        }
+        if (compared == 0) {
+            compared = rows.ids[row].compareTo(after.id());
+        }
+        return asc ? compared > 0 : compared < 0;
+    }
+
+    private static boolean[] matchingOids(String[] oids, String prefix) {
+        boolean[] matches = new boolean[oids.length];
+        for (int i = 0; i < oids.length; i++) {
+            String oid = oids[i];
+            // Same arc boundary as the Mongo query: 1.3.6.1.2.10 is not under 1.3.6.1.2.1
+            matches[i] = oid != null && oid.startsWith(prefix)
+                    && (oid.length() == prefix.length() || oid.charAt(prefix.length()) == '.');
+        }
+        return matches;
+    }
+
+    // First row at or after the timestamp; rows are sorted by timestamp
+    private static int lowerBound(long[] timestamps, long timestamp) {
+        int low = 0;
+        int high = timestamps.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        tiering.shutdown();
+        tiering.awaitTermination(30, TimeUnit.SECONDS);
+        log.info("🧊 Archive stopped with {} segment(s)", segments.size());
+    }
+}
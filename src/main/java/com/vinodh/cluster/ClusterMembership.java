@@ -0,0 +1,168 @@
+package com.vinodh.cluster;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Instances sharing the device keyspace, as {@code host:port} gRPC addresses.
+ * Members come from {@code traps.cluster.members} or, when {@code traps.cluster.members-file} is set,
+ * from that file (one address per line, {@code #} comments), which is re-read periodically so members
+ * can be added or removed without a restart. An instance left out of the list owns no devices and
+ * forwards everything it receives, which is how a node is drained before it is stopped.
+ */
+@Component
+public class ClusterMembership {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterMembership.class);
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.cluster.enabled:false}")
+    private boolean enabled;
+
+    // This instance's gRPC address exactly as it appears in the member list
+    @Value("${traps.cluster.self:}")
+    private String self;
+
+    @Value("${traps.cluster.members:}")
+    private String members;
+
+    @Value("${traps.cluster.members-file:}")
+    private String membersFile;
+
+    @Value("${traps.cluster.virtual-nodes:128}")
+    private int virtualNodes;
+
+    @Value("${traps.cluster.refresh-interval-ms:5000}")
+    private long refreshIntervalMs;
+
+    // Shared secret sent with forwarded calls; blank trusts any current member address
+    @Value("${traps.cluster.forward.token:}")
+    private String forwardToken;
+
+    private volatile HashRing ring;
+    private final List<Consumer<HashRing>> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (self.isBlank()) {
+            throw new IllegalStateException("traps.cluster.self is required when traps.cluster.enabled is set");
+        }
+        Set<String> initial = membersFile.isBlank() ? parse(Arrays.asList(members.split(","))) : read();
+        ring = new HashRing(initial, virtualNodes);
+        log.info("🔗 Cluster membership: self={}, members={}", self, ring.members());
+        warnIfNotMember(ring);
+        if (forwardToken.isBlank()) {
+            log.warn("⚠️ traps.cluster.forward.token is not set; any client naming a member address can skip admission control");
+        }
+        Gauge.builder("snmp_cluster_members", this, membership -> membership.ring.members().size())
+                .description("Instances in the consistent-hash ring")
+                .register(registry);
+        if (!membersFile.isBlank()) {
+            refresher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("cluster-membership").daemon(true).factory());
+            refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public String forwardToken() {
+        return forwardToken;
+    }
+
+    /** Whether the address is another instance currently in the ring; false when clustering is off. */
+    public boolean isPeer(String address) {
+        HashRing current = ring;
+        return enabled && current != null && !address.equals(self) && current.members().contains(address);
+    }
+
+    /** Member owning the device; null if the ring is empty. */
+    public String owner(String deviceId) {
+        return ring.owner(deviceId);
+    }
+
+    /** Called with the new ring after every membership change. */
+    public void onChange(Consumer<HashRing> listener) {
+        listeners.add(listener);
+    }
+
+    private void refresh() {
+        try {
+            Set<String> current = read();
+            HashRing previous = ring;
+            if (current.equals(previous.members())) {
+                return;
+            }
+            HashRing next = new HashRing(current, virtualNodes);
+            ring = next;
+            log.info("🔄 Cluster membership changed: {} -> {}", previous.members(), next.members());
+            warnIfNotMember(next);
+            for (Consumer<HashRing> listener : listeners) {
+                listener.accept(next);
+            }
+        } catch (Exception e) {
+            // Keep routing with the last good list
+            log.error("❌ Failed to reload cluster members from {}: {}", membersFile, e.getMessage(), e);
+        }
+    }
+
+    private Set<String> read() throws IOException {
+        return parse(Files.readAllLines(Path.of(membersFile)));
+    }
+
+    private static Set<String> parse(List<String> lines) {
+        Set<String> parsed = new LinkedHashSet<>();
+        for (String line : lines) {
+            int comment = line.indexOf('#');
+            String member = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (!member.isEmpty()) {
+                parsed.add(member);
+            }
+        }
+        return parsed;
+    }
+
+    private void warnIfNotMember(HashRing current) {
+        if (!current.members().contains(self)) {
+            log.warn("⚠️ {} is not a cluster member; all traps received here are forwarded", self);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
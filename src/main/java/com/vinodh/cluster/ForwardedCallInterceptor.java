@@ -0,0 +1,67 @@
+package com.vinodh.cluster;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Marks calls opened by another instance to forward traps it does not own.
+ * Forwarded traps are always processed locally, so instances with briefly different member lists
+ * never bounce traps between each other. Forwarded calls also skip admission control, so the header is
+ * honoured only with clustering enabled, from a current member other than this instance, and with the
+ * {@code traps.cluster.forward.token} when one is configured; otherwise the call is served as an external one.
+ */
+public class ForwardedCallInterceptor implements ServerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(ForwardedCallInterceptor.class);
+
+    static final Metadata.Key<String> FORWARDED_BY = Metadata.Key.of("x-traps-forwarded-by", Metadata.ASCII_STRING_MARSHALLER);
+    static final Metadata.Key<String> FORWARD_TOKEN = Metadata.Key.of("x-traps-forward-token", Metadata.ASCII_STRING_MARSHALLER);
+
+    private static final Context.Key<String> FORWARDED_FROM = Context.key("traps-forwarded-from");
+
+    private final ClusterMembership membership;
+
+    public ForwardedCallInterceptor(ClusterMembership membership) {
+        this.membership = membership;
+    }
+
+    /** True while serving a call forwarded by another instance; read when the call starts. */
+    public static boolean isForwarded() {
+        return FORWARDED_FROM.get() != null;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call,
+            Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+        String origin = headers.get(FORWARDED_BY);
+        if (origin == null) {
+            return next.startCall(call, headers);
+        }
+        if (!membership.isPeer(origin) || !tokenMatches(headers.get(FORWARD_TOKEN))) {
+            log.debug("Ignoring untrusted forwarded-by header from {}", origin);
+            return next.startCall(call, headers);
+        }
+        return Contexts.interceptCall(Context.current().withValue(FORWARDED_FROM, origin), call, headers, next);
+    }
+
+    private boolean tokenMatches(String token) {
+        String expected = membership.forwardToken();
+        if (expected.isBlank()) {
+            return true;
+        }
+        // Constant time, so the token cannot be guessed byte by byte
+        return token != null && MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), expected.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,72 @@
+package com.vinodh.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring over the cluster members. Each member is placed at
+ * {@code virtualNodes} points, and a key belongs to the first point at or after its hash, so a
+ * membership change only moves the keys between the changed member and its ring neighbours.
+ * Every instance computes the same ring from the same member list.
+ */
+public final class HashRing {
+
+    private final Set<String> members;
+    private final long[] points;
+    private final String[] owners;
+
+    HashRing(Set<String> members, int virtualNodes) {
+        this.members = Collections.unmodifiableSet(new TreeSet<>(members));
+        record Point(long hash, String member) {}
+        List<Point> all = new ArrayList<>(members.size() * virtualNodes);
+        for (String member : this.members) {
+            for (int v = 0; v < virtualNodes; v++) {
+                all.add(new Point(hash(member + "#" + v), member));
+            }
+        }
+        // Ties broken by name so every instance orders colliding points the same way
+        all.sort(Comparator.comparingLong(Point::hash).thenComparing(Point::member));
+        points = new long[all.size()];
+        owners = new String[all.size()];
+        for (int i = 0; i < all.size(); i++) {
+            points[i] = all.get(i).hash();
+            owners[i] = all.get(i).member();
+        }
+    }
+
+    public Set<String> members() {
+        return members;
+    }
+
+    /** Member owning the key, or null if the ring is empty. */
+    public String owner(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int i = Arrays.binarySearch(points, hash(key));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return owners[i == points.length ? 0 : i];
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer to spread similar keys. */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
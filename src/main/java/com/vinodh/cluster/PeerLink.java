@@ -0,0 +1,300 @@
+package com.vinodh.cluster;
+
+import com.vinodh.BatchAck;
+import com.vinodh.BatchFailure;
+import com.vinodh.FailureCode;
+import com.vinodh.NotificationBatch;
+import com.vinodh.NotificationServiceGrpc;
+import com.vinodh.SNMPNotification;
+import com.vinodh.service.NotificationIngestPipeline;
+import com.vinodh.service.TrapPriority;
+import com.vinodh.tracing.NotificationTracing;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * One forwarding lane to a peer: its own channel and one long-lived {@code StreamNotificationBatches} call.
+ * Traps are queued, sent in batches of up to {@code batchSize} or after {@code maxDelayMs}, and their
+ * outcomes are reported from the peer's cumulative acks. A device always maps to the same lane, so its
+ * traps reach the owner in the order they arrived here. If the call fails, its unacked traps are handed
+ * to {@code fallback} and the next batch opens a new call.
+ */
+final class PeerLink {
+
+    private static final Logger log = LoggerFactory.getLogger(PeerLink.class);
+
+    // How long a closing link waits for the peer to ack and end the call before cutting it off
+    private static final long FINISH_TIMEOUT_SECONDS = 10;
+
+    /** A trap waiting to be acked by the owner. */
+    static final class Forward {
+        final SNMPNotification notification;
+        // Used only if the trap ends up processed here; the owner classifies it again
+        final TrapPriority priority;
+        final NotificationTracing.Trace trace;
+        final NotificationIngestPipeline.Outcome outcome;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final long started = System.nanoTime();
+        // Set from the ack's failure list before the batch is acked
+        FailureCode failure;
+
+        Forward(SNMPNotification notification, TrapPriority priority, NotificationTracing.Trace trace,
+                NotificationIngestPipeline.Outcome outcome) {
+            this.notification = notification;
+            this.priority = priority;
+            this.trace = trace;
+            this.outcome = outcome;
+        }
+    }
+
+    private final String peer;
+    private final ManagedChannel channel;
+    private final NotificationServiceGrpc.NotificationServiceStub stub;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Consumer<Forward> fallback;
+    private final Runnable batchSent;
+    private final BlockingQueue<Forward> queue = new LinkedBlockingQueue<>();
+    private final Thread sender;
+    private volatile boolean closed;
+    // Touched only by the sender thread
+    private Call call;
+
+    PeerLink(String peer, String self, String token, int lane, int batchSize, long maxDelayMs,
+             Consumer<Forward> fallback, Runnable batchSent) {
+        this.peer = peer;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.fallback = fallback;
+        this.batchSent = batchSent;
+        this.channel = ManagedChannelBuilder.forTarget(peer).usePlaintext()
+                .keepAliveTime(30, TimeUnit.SECONDS)
+                .build();
+        Metadata headers = new Metadata();
+        headers.put(ForwardedCallInterceptor.FORWARDED_BY, self);
+        if (!token.isBlank()) {
+            headers.put(ForwardedCallInterceptor.FORWARD_TOKEN, token);
+        }
+        this.stub = NotificationServiceGrpc.newStub(channel).withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+        this.sender = Thread.ofVirtual().name("cluster-forward-" + peer + "-" + lane).start(this::sendLoop);
+    }
+
+    /** Queues the trap; false once the link is closing, in which case the caller must handle it. */
+    boolean offer(Forward forward) {
+        // Under the same lock as close(), so nothing is queued after the sender saw the link closed and empty
+        synchronized (queue) {
+            if (closed) {
+                return false;
+            }
+            queue.add(forward);
+            return true;
+        }
+    }
+
+    /** Sends what is queued, half-closes the call once the peer acked it, then shuts the channel down. */
+    void close() {
+        synchronized (queue) {
+            closed = true;
+        }
+    }
+
+    private void sendLoop() {
+        List<Forward> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Forward first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    long wait = deadline - System.nanoTime();
+                    Forward next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("❌ Forwarding to {} failed: {}", peer, e.getMessage(), e);
+                batch.forEach(fallback);
+            }
+            batch.clear();
+        }
+        // Left over only if the sender was interrupted
+        List<Forward> unsent = new ArrayList<>();
+        queue.drainTo(unsent);
+        unsent.forEach(fallback);
+        if (call != null && !call.broken) {
+            call.finish();
+            awaitEnd(call);
+        } else {
+            channel.shutdown();
+        }
+    }
+
+    // The call's own callbacks shut the channel down; a peer that never ends the call is cut off here
+    private void awaitEnd(Call last) {
+        try {
+            last.ended.get(FINISH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return;
+        } catch (TimeoutException e) {
+            log.warn("⚠️ Forwarding call to {} not ended within {}s, processing {} unacked batches locally",
+                    peer, FINISH_TIMEOUT_SECONDS, last.outstanding.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Never completed exceptionally
+        }
+        last.abandon();
+        channel.shutdownNow();
+    }
+
+    private void send(List<Forward> batch) {
+        if (call == null || call.broken) {
+            call = new Call();
+        }
+        call.send(batch);
+        batchSent.run();
+    }
+
+    /** One {@code StreamNotificationBatches} call and the batches it has not acked yet. */
+    private final class Call implements StreamObserver<BatchAck> {
+        private final StreamObserver<NotificationBatch> requests;
+        private final ConcurrentSkipListMap<Long, Forward[]> outstanding = new ConcurrentSkipListMap<>();
+        private long nextSequence = 1;
+        private volatile boolean broken;
+        private volatile boolean finishing;
+        // Completes once the peer ended the call, either way
+        private final CompletableFuture<Void> ended = new CompletableFuture<>();
+
+        Call() {
+            requests = stub.streamNotificationBatches(this);
+        }
+
+        void send(List<Forward> batch) {
+            long sequence = nextSequence++;
+            NotificationBatch.Builder message = NotificationBatch.newBuilder().setSequence(sequence);
+            for (Forward forward : batch) {
+                message.addNotifications(forward.notification);
+            }
+            outstanding.put(sequence, batch.toArray(new Forward[0]));
+            try {
+                synchronized (this) {
+                    requests.onNext(message.build());
+                }
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Forwarding call to {} cannot send: {}", peer, e.getMessage());
+                broken = true;
+            }
+            if (broken) {
+                // Failed while this batch was being added; onError may have missed it
+                abandon();
+            }
+        }
+
+        void finish() {
+            finishing = true;
+            synchronized (this) {
+                requests.onCompleted();
+            }
+        }
+
+        @Override
+        public void onNext(BatchAck ack) {
+            for (BatchFailure failure : ack.getFailuresList()) {
+                Forward[] batch = outstanding.get(failure.getSequence());
+                if (batch != null && failure.getIndex() < batch.length) {
+                    batch[failure.getIndex()].failure = failure.getCode();
+                }
+            }
+            Map.Entry<Long, Forward[]> entry;
+            while ((entry = outstanding.firstEntry()) != null && entry.getKey() <= ack.getAckedThrough()) {
+                // Loses to a concurrent abandon(), which then reports the batch instead
+                if (outstanding.remove(entry.getKey(), entry.getValue())) {
+                    for (Forward forward : entry.getValue()) {
+                        complete(forward);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            log.warn("⚠️ Forwarding call to {} failed, processing {} unacked batches locally: {}",
+                    peer, outstanding.size(), t.getMessage());
+            broken = true;
+            abandon();
+            if (finishing) {
+                // The peer reset the last call of a closing link, e.g. while leaving the ring
+                channel.shutdown();
+            }
+            ended.complete(null);
+        }
+
+        @Override
+        public void onCompleted() {
+            abandon();
+            if (finishing) {
+                channel.shutdown();
+            }
+            ended.complete(null);
+        }
+
+        private void abandon() {
+            Map.Entry<Long, Forward[]> entry;
+            while ((entry = outstanding.pollFirstEntry()) != null) {
+                for (Forward forward : entry.getValue()) {
+                    fallback.accept(forward);
+                }
+            }
+        }
+
+        private void complete(Forward forward) {
+            try {
+                if (forward.failure == FailureCode.VALIDATION_ERROR) {
+                    forward.trace.validationError();
+                    forward.outcome.validationFailed("Rejected by owner " + peer);
+                } else if (forward.failure == FailureCode.RESOURCE_EXHAUSTED) {
+                    Exception error = Status.RESOURCE_EXHAUSTED.withDescription("Refused by owner " + peer).asRuntimeException();
+                    forward.trace.internalError(error);
+                    forward.outcome.rejected(error);
+                } else if (forward.failure != null) {
+                    Exception error = Status.INTERNAL.withDescription("Failed on owner " + peer).asRuntimeException();
+                    forward.trace.internalError(error);
+                    forward.outcome.internalError(error);
+                } else {
+                    forward.trace.processed(System.nanoTime() - forward.started);
+                    forward.outcome.processed();
+                }
+            } catch (RuntimeException e) {
+                log.error("❌ Error reporting forwarded trap for deviceId={}: {}", forward.notification.getDeviceId(), e.getMessage(), e);
+            } finally {
+                forward.done.complete(null);
+            }
+        }
+    }
+}
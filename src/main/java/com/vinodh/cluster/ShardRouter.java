@@ -0,0 +1,157 @@
+package com.vinodh.cluster;
+
+import com.vinodh.SNMPNotification;
+import com.vinodh.service.NotificationIngestPipeline;
+import com.vinodh.service.TrapPriority;
+import com.vinodh.tracing.NotificationTracing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends each notification to the instance owning its device on the {@link ClusterMembership} ring.
+ * Devices owned here, and everything arriving on a forwarded call, go straight to the
+ * {@link NotificationIngestPipeline}; the rest is batched to the owner over pooled internal channels
+ * ({@code traps.cluster.forward.*}) and reported to the caller's {@link NotificationIngestPipeline.Outcome}
+ * once the owner acks it. When members change, new traps follow the new ring while forwards already
+ * sent complete on the old owner, so client streams are never interrupted. Traps whose forward fails
+ * are processed here instead.
+ */
+@Service
+public class ShardRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+
+    // Lookups retried when a membership change closes the chosen link; processed here after that
+    private static final int MAX_ROUTE_ATTEMPTS = 3;
+
+    @Autowired
+    private NotificationIngestPipeline pipeline;
+
+    @Autowired
+    private ClusterMembership membership;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.cluster.forward.channels-per-peer:2}")
+    private int channelsPerPeer;
+
+    @Value("${traps.cluster.forward.batch-size:200}")
+    private int batchSize;
+
+    @Value("${traps.cluster.forward.max-delay-ms:5}")
+    private long maxDelayMs;
+
+    private final Map<String, PeerLink[]> links = new ConcurrentHashMap<>();
+    private Counter routedLocal;
+    private Counter routedForwarded;
+    private Counter forwardBatches;
+    private Counter forwardFallbacks;
+
+    @PostConstruct
+    void init() {
+        routedLocal = routed("local");
+        routedForwarded = routed("forwarded");
+        forwardBatches = Counter.builder("snmp_cluster_forward_batches")
+                .description("Batches sent to owning instances")
+                .register(registry);
+        forwardFallbacks = Counter.builder("snmp_cluster_forward_fallbacks")
+                .description("Forwarded traps processed locally because the call to the owner failed")
+                .register(registry);
+        membership.onChange(ring -> links.entrySet().removeIf(entry -> {
+            if (ring.members().contains(entry.getKey())) {
+                return false;
+            }
+            log.info("🔗 Closing forwarding links to departed member {}", entry.getKey());
+            closeAll(entry.getValue());
+            return true;
+        }));
+    }
+
+    private Counter routed(String target) {
+        return Counter.builder("snmp_cluster_routed")
+                .tag("target", target)
+                .description("Notifications by where they were processed")
+                .register(registry);
+    }
+
+    /**
+     * Processes the notification here or forwards it to its owner; same contract as
+     * {@link NotificationIngestPipeline#process}. {@code forwarded} marks calls opened by another
+     * instance (see {@link ForwardedCallInterceptor#isForwarded()}), which are never forwarded again.
+     */
+    public CompletableFuture<Void> process(SNMPNotification request, TrapPriority priority, NotificationTracing.Trace trace,
+                                           NotificationIngestPipeline.Outcome outcome, boolean forwarded) {
+        if (membership.isEnabled() && !forwarded) {
+            PeerLink.Forward forward = null;
+            for (int attempt = 0; attempt < MAX_ROUTE_ATTEMPTS; attempt++) {
+                String owner = membership.owner(request.getDeviceId());
+                if (owner == null || owner.equals(membership.self())) {
+                    break;
+                }
+                if (forward == null) {
+                    forward = new PeerLink.Forward(request, priority, trace, outcome);
+                }
+                if (lane(owner, request.getDeviceId()).offer(forward)) {
+                    routedForwarded.increment();
+                    return forward.done;
+                }
+                // The link was closed by a membership change after the lookup; route on the new ring
+            }
+        }
+        routedLocal.increment();
+        return local(request, priority, trace, outcome);
+    }
+
+    private CompletableFuture<Void> local(SNMPNotification request, TrapPriority priority, NotificationTracing.Trace trace,
+                                          NotificationIngestPipeline.Outcome outcome) {
+        return pipeline.process(request.getDeviceId(), request.getOid(), request.getValue(), request.getTimestamp(),
+                priority, trace, outcome);
+    }
+
+    private void fallback(PeerLink.Forward forward) {
+        forwardFallbacks.increment();
+        local(forward.notification, forward.priority, forward.trace, forward.outcome)
+                .whenComplete((v, ex) -> forward.done.complete(null));
+    }
+
+    private PeerLink lane(String peer, String deviceId) {
+        PeerLink[] lanes = links.computeIfAbsent(peer, this::open);
+        return lanes[Math.floorMod(HashRing.hash(deviceId), lanes.length)];
+    }
+
+    private PeerLink[] open(String peer) {
+        log.info("🔗 Opening {} forwarding link(s) to {}", channelsPerPeer, peer);
+        PeerLink[] lanes = new PeerLink[channelsPerPeer];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new PeerLink(peer, membership.self(), membership.forwardToken(), i, batchSize, maxDelayMs,
+                    this::fallback, forwardBatches::increment);
+        }
+        return lanes;
+    }
+
+    private static void closeAll(PeerLink[] lanes) {
+        if (lanes != null) {
+            for (PeerLink lane : lanes) {
+                lane.close();
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        links.values().forEach(ShardRouter::closeAll);
+        links.clear();
+    }
+}
@@ -0,0 +1,28 @@
+package com.vinodh.compression;
+
+import io.grpc.Codec;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** LZ4 frame-format message encoding ({@code lz4}); the cheapest codec, for links where CPU matters more than ratio. */
+public class Lz4Codec implements Codec {
+
+    @Override
+    public String getMessageEncoding() {
+        return "lz4";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) throws IOException {
+        return new LZ4FrameOutputStream(os);
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) throws IOException {
+        return new LZ4FrameInputStream(is);
+    }
+}
@@ -0,0 +1,243 @@
+package com.vinodh.compression;
+
+import io.grpc.Codec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a codec to report, per encoding and direction, the bytes before and after compression, the
+ * per-message ratio and the CPU time spent inside the codec. CPU time is read around the codec's own
+ * calls only, so protobuf serialization in between is not charged to it.
+ */
+public class MeteredCodec implements Codec {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final Codec delegate;
+    private final Meters compress;
+    private final Meters decompress;
+
+    public MeteredCodec(Codec delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.compress = new Meters(delegate.getMessageEncoding(), "compress", registry);
+        this.decompress = new Meters(delegate.getMessageEncoding(), "decompress", registry);
+    }
+
+    @Override
+    public String getMessageEncoding() {
+        return delegate.getMessageEncoding();
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) throws IOException {
+        CountingOutputStream compressed = new CountingOutputStream(os);
+        long cpu = cpuNanos();
+        OutputStream codec = delegate.compress(compressed);
+        return new MeteredOutputStream(codec, compressed, cpuNanos() - cpu);
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) throws IOException {
+        CountingInputStream compressed = new CountingInputStream(is);
+        long cpu = cpuNanos();
+        InputStream codec = delegate.decompress(compressed);
+        return new MeteredInputStream(codec, compressed, cpuNanos() - cpu);
+    }
+
+    private static long cpuNanos() {
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+    private static final class Meters {
+        private final Counter uncompressedBytes;
+        private final Counter compressedBytes;
+        private final DistributionSummary ratio;
+        private final Timer cpu;
+
+        Meters(String codec, String direction, MeterRegistry registry) {
+            uncompressedBytes = Counter.builder("grpc_compression_bytes")
+                    .tag("codec", codec).tag("direction", direction).tag("form", "uncompressed")
+                    .baseUnit("bytes")
+                    .description("Message bytes passed through a gRPC codec, before and after compression")
+                    .register(registry);
+            compressedBytes = Counter.builder("grpc_compression_bytes")
+                    .tag("codec", codec).tag("direction", direction).tag("form", "compressed")
+                    .baseUnit("bytes")
+                    .description("Message bytes passed through a gRPC codec, before and after compression")
+                    .register(registry);
+            ratio = DistributionSummary.builder("grpc_compression_ratio")
+                    .tag("codec", codec).tag("direction", direction)
+                    .description("Uncompressed to compressed size of single gRPC messages")
+                    .publishPercentiles(0.5, 0.95)
+                    .register(registry);
+            cpu = Timer.builder("grpc_compression_cpu")
+                    .tag("codec", codec).tag("direction", direction)
+                    .description("CPU time spent in a gRPC codec per message")
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry);
+        }
+
+        void record(long uncompressed, long compressed, long cpuNanos) {
+            uncompressedBytes.increment(uncompressed);
+            compressedBytes.increment(compressed);
+            if (compressed > 0) {
+                ratio.record((double) uncompressed / compressed);
+            }
+            cpu.record(cpuNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Counts what the codec writes to the transport. */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /** Counts what the codec reads from the transport. */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    /** The codec's stream as handed to gRPC; records the message once gRPC closes it. */
+    private final class MeteredOutputStream extends FilterOutputStream {
+        private final CountingOutputStream compressed;
+        private long uncompressed;
+        private long cpu;
+        private boolean closed;
+
+        MeteredOutputStream(OutputStream codec, CountingOutputStream compressed, long cpu) {
+            super(codec);
+            this.compressed = compressed;
+            this.cpu = cpu;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = cpuNanos();
+            out.write(b);
+            cpu += cpuNanos() - start;
+            uncompressed++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = cpuNanos();
+            out.write(b, off, len);
+            cpu += cpuNanos() - start;
+            uncompressed += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = cpuNanos();
+            out.flush();
+            cpu += cpuNanos() - start;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long start = cpuNanos();
+            out.close();
+            cpu += cpuNanos() - start;
+            compress.record(uncompressed, compressed.count, cpu);
+        }
+    }
+
+    /** The codec's stream as handed to gRPC; records the message once gRPC closes it. */
+    private final class MeteredInputStream extends FilterInputStream {
+        private final CountingInputStream compressed;
+        private long uncompressed;
+        private long cpu;
+        private boolean closed;
+
+        MeteredInputStream(InputStream codec, CountingInputStream compressed, long cpu) {
+            super(codec);
+            this.compressed = compressed;
+            this.cpu = cpu;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = cpuNanos();
+            int b = in.read();
+            cpu += cpuNanos() - start;
+            if (b >= 0) {
+                uncompressed++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = cpuNanos();
+            int n = in.read(b, off, len);
+            cpu += cpuNanos() - start;
+            if (n > 0) {
+                uncompressed += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            in.close();
+            decompress.record(uncompressed, compressed.count, cpu);
+        }
+    }
+}
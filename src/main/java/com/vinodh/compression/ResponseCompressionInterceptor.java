@@ -0,0 +1,78 @@
+package com.vinodh.compression;
+
+import com.google.protobuf.MessageLite;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks the response compression of each call: the first codec of the server's preference list that the
+ * client lists in {@code grpc-accept-encoding}, or none. Messages smaller than {@code minBytes} are sent
+ * uncompressed, since the frame overhead outweighs any saving on small acks.
+ */
+public class ResponseCompressionInterceptor implements ServerInterceptor {
+
+    private static final Metadata.Key<String> ACCEPT_ENCODING =
+            Metadata.Key.of("grpc-accept-encoding", Metadata.ASCII_STRING_MARSHALLER);
+
+    private final List<String> preference;
+    private final int minBytes;
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, Counter> negotiated = new ConcurrentHashMap<>();
+
+    public ResponseCompressionInterceptor(List<String> preference, int minBytes, MeterRegistry registry) {
+        this.preference = List.copyOf(preference);
+        this.minBytes = minBytes;
+        this.registry = registry;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call,
+            Metadata headers,
+            ServerCallHandler<ReqT, RespT> next) {
+        String codec = choose(headers.get(ACCEPT_ENCODING));
+        negotiated.computeIfAbsent(codec, name -> Counter.builder("grpc_compression_negotiated")
+                .tag("codec", name)
+                .description("gRPC calls by the response codec chosen from the client's accepted encodings")
+                .register(registry)).increment();
+        if (codec.equals("identity")) {
+            return next.startCall(call, headers);
+        }
+        call.setCompression(codec);
+        return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void sendMessage(RespT message) {
+                // Sizes are memoized by protobuf; other message types are always compressed
+                boolean large = !(message instanceof MessageLite protobuf) || protobuf.getSerializedSize() >= minBytes;
+                super.setMessageCompression(large);
+                super.sendMessage(message);
+            }
+        }, headers);
+    }
+
+    private String choose(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return "identity";
+        }
+        Set<String> accepted = new HashSet<>();
+        for (String encoding : acceptEncoding.split(",")) {
+            accepted.add(encoding.trim());
+        }
+        for (String codec : preference) {
+            if (accepted.contains(codec)) {
+                return codec;
+            }
+        }
+        return "identity";
+    }
+}
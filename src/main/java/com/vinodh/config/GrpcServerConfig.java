@@ -1,6 +1,13 @@
 package com.vinodh.config;
 
+import com.vinodh.cluster.ClusterMembership;
+import com.vinodh.cluster.ForwardedCallInterceptor;
+import com.vinodh.compression.Lz4Codec;
+import com.vinodh.compression.MeteredCodec;
+import com.vinodh.compression.ResponseCompressionInterceptor;
+import com.vinodh.compression.ZstdCodec;
 import com.vinodh.metrics.GrpcMetricsInterceptor;
+import io.grpc.Codec;
 import io.grpc.CompressorRegistry;
 import io.grpc.DecompressorRegistry;
 import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
@@ -11,6 +18,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
@@ -44,8 +52,27 @@ public class GrpcServerConfig {
     @Value("${grpc.server.flowControlWindow}")
     private int flowControlWindow;
 
+    // Registered codecs in order of preference for responses
+    @Value("${grpc.server.compression.codecs:zstd,lz4,gzip}")
+    private List<String> compressionCodecs;
+
+    @Value("${grpc.server.compression.zstdLevel:3}")
+    private int zstdLevel;
+
+    @Value("${grpc.server.compression.minResponseBytes:256}")
+    private int minResponseBytes;
+
     @Bean
-    public GrpcServerConfigurer grpcServerConfigurer() {
+    public GrpcServerConfigurer grpcServerConfigurer(MeterRegistry registry) {
+        // Every registered codec is accepted on requests and advertised in grpc-accept-encoding
+        CompressorRegistry compressors = CompressorRegistry.newEmptyInstance();
+        DecompressorRegistry decompressors = DecompressorRegistry.emptyInstance().with(Codec.Identity.NONE, false);
+        for (String name : compressionCodecs) {
+            Codec codec = new MeteredCodec(codec(name.trim()), registry);
+            compressors.register(codec);
+            decompressors = decompressors.with(codec, true);
+        }
+        DecompressorRegistry advertised = decompressors;
         return serverBuilder -> {
             if (serverBuilder instanceof NettyServerBuilder netty) {
 
@@ -63,8 +90,8 @@ public class GrpcServerConfig {
                         .flowControlWindow(flowControlWindow);
 
                 // Compression
-                netty.compressorRegistry(CompressorRegistry.getDefaultInstance());
-                netty.decompressorRegistry(DecompressorRegistry.getDefaultInstance());
+                netty.compressorRegistry(compressors);
+                netty.decompressorRegistry(advertised);
             }
         };
     }
@@ -74,4 +101,25 @@ public class GrpcServerConfig {
     public GrpcMetricsInterceptor grpcMetricsInterceptor(MeterRegistry registry) {
         return new GrpcMetricsInterceptor(registry);
     }
+
+    private Codec codec(String name) {
+        return switch (name) {
+            case "zstd" -> new ZstdCodec(zstdLevel);
+            case "lz4" -> new Lz4Codec();
+            case "gzip" -> new Codec.Gzip();
+            default -> throw new IllegalStateException("Unknown gRPC compression codec: " + name);
+        };
+    }
+
+    @Bean
+    @GrpcGlobalServerInterceptor
+    public ResponseCompressionInterceptor responseCompressionInterceptor(MeterRegistry registry) {
+        return new ResponseCompressionInterceptor(compressionCodecs.stream().map(String::trim).toList(), minResponseBytes, registry);
+    }
+
+    @Bean
+    @GrpcGlobalServerInterceptor
+    public ForwardedCallInterceptor forwardedCallInterceptor(ClusterMembership membership) {
+        return new ForwardedCallInterceptor(membership);
+    }
 }
@@ -0,0 +1,29 @@
+package com.vinodh.config;
+
+import com.vinodh.service.TimestampParser;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.time.Instant;
+import java.util.List;
+
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(new LegacyTimestampConverter()));
+    }
+
+    // Documents written before timestamps were typed hold the collector's raw string
+    @ReadingConverter
+    static class LegacyTimestampConverter implements Converter<String, Instant> {
+        @Override
+        public Instant convert(String source) {
+            return TimestampParser.tryParse(source);
+        }
+    }
+}
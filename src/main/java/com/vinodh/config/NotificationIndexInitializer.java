@@ -0,0 +1,78 @@
+package com.vinodh.config;
+
+import com.vinodh.entity.SNMPNotificationEntity;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the compound indexes behind the notification query API and checks at startup that they exist.
+ * Device and OID indexes use the code fields when {@code traps.intern.store-compact} is set.
+ */
+@Component
+@DependsOn("timeSeriesCollectionInitializer")
+public class NotificationIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationIndexInitializer.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${traps.intern.store-compact:false}")
+    private boolean storeCompact;
+
+    @Value("${traps.api.indexes.create:true}")
+    private boolean enabled;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        String deviceField = storeCompact ? "deviceCode" : "deviceId";
+        String oidField = storeCompact ? "oidCode" : "oid";
+
+        List<Index> indexes = List.of(
+                new Index().on(deviceField, Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                        .named("device_time"),
+                new Index().on(oidField, Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC)
+                        .named("oid_time"),
+                new Index().on("processed", Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                        .named("status_time"),
+                new Index().on("timestamp", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                        .named("time"));
+
+        IndexOperations indexOps = mongoTemplate.indexOps(SNMPNotificationEntity.class);
+        for (Index index : indexes) {
+            try {
+                indexOps.ensureIndex(index);
+            } catch (RuntimeException e) {
+                log.error("❌ Failed to create index {}: {}", index.getIndexOptions().get("name"), e.getMessage());
+            }
+        }
+
+        Set<String> present = indexOps.getIndexInfo().stream().map(IndexInfo::getName).collect(Collectors.toSet());
+        List<String> missing = indexes.stream()
+                .map(index -> (String) index.getIndexOptions().get("name"))
+                .filter(name -> !present.contains(name))
+                .toList();
+        if (missing.isEmpty()) {
+            log.info("🗂️ Notification indexes verified: {}", present);
+        } else {
+            log.error("❌ Notification indexes missing: {} — filtered queries on large collections will be refused", missing);
+        }
+    }
+}
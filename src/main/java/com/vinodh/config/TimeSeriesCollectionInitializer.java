@@ -0,0 +1,115 @@
+package com.vinodh.config;
+
+import com.vinodh.entity.SNMPNotificationEntity;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in time-series storage for {@code snmp_notifications}.
+ * With {@code traps.storage.time-series.enabled} the collection is created at startup as a Mongo
+ * time-series collection on {@code timestamp}, bucketed per device (the meta field) at the configured
+ * granularity. An existing collection is left alone; a warning is logged if it is not time-series.
+ * Time-series documents have no unique {@code _id}, and before Mongo 7.0 cannot be updated or deleted by it.
+ * Dedup count updates, archive deletes and the duplicate-key idempotency that WAL and retry replays rely on
+ * all need that, so startup fails if any of them is enabled together with time-series storage, or if the
+ * server is older than 7.0 (the PATCH and DELETE endpoints update and delete by {@code _id}).
+ */
+@Component
+public class TimeSeriesCollectionInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(TimeSeriesCollectionInitializer.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${traps.storage.time-series.enabled:false}")
+    private boolean enabled;
+
+    @Value("${traps.storage.time-series.granularity:seconds}")
+    private String granularity;
+
+    // Compact storage writes the device code instead of the deviceId
+    @Value("${traps.intern.store-compact:false}")
+    private boolean storeCompact;
+
+    @Value("${traps.dedup.enabled:false}")
+    private boolean dedupEnabled;
+
+    @Value("${traps.archive.enabled:false}")
+    private boolean archiveEnabled;
+
+    @Value("${traps.wal.enabled:false}")
+    private boolean walEnabled;
+
+    @Value("${traps.retry.enabled:true}")
+    private boolean retryEnabled;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        checkCompatible();
+        String collection = mongoTemplate.getCollectionName(SNMPNotificationEntity.class);
+        String metaField = storeCompact ? "deviceCode" : "deviceId";
+
+        if (mongoTemplate.collectionExists(collection)) {
+            if (!isTimeSeries(collection)) {
+                log.warn("⚠️ Collection {} already exists as a regular collection; time-series storage not applied", collection);
+            }
+            return;
+        }
+
+        mongoTemplate.createCollection(collection, CollectionOptions.empty().timeSeries(
+                CollectionOptions.TimeSeriesOptions.timeSeries("timestamp")
+                        .metaField(metaField)
+                        .granularity(Granularity.valueOf(granularity.toUpperCase()))));
+        log.info("🕒 Created time-series collection {} (timeField=timestamp, metaField={}, granularity={})",
+                collection, metaField, granularity);
+    }
+
+    // Fails fast instead of letting replays duplicate traps and updates or deletes silently match nothing
+    private void checkCompatible() {
+        List<String> conflicts = new ArrayList<>();
+        if (dedupEnabled) {
+            conflicts.add("traps.dedup.enabled");
+        }
+        if (archiveEnabled) {
+            conflicts.add("traps.archive.enabled");
+        }
+        if (walEnabled) {
+            conflicts.add("traps.wal.enabled");
+        }
+        if (retryEnabled) {
+            conflicts.add("traps.retry.enabled");
+        }
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException("traps.storage.time-series.enabled cannot be combined with " + conflicts
+                    + ": time-series collections have no unique _id to update, delete or deduplicate replays by");
+        }
+        String version = mongoTemplate.executeCommand(new Document("buildInfo", 1)).getString("version");
+        if (version == null || Integer.parseInt(version.split("\\.")[0]) < 7) {
+            throw new IllegalStateException("traps.storage.time-series.enabled needs MongoDB 7.0 or later to update and "
+                    + "delete notifications by _id; server version is " + version);
+        }
+    }
+
+    private boolean isTimeSeries(String collection) {
+        Document info = mongoTemplate.getDb()
+                .listCollections()
+                .filter(new Document("name", collection))
+                .first();
+        return info != null && "timeseries".equals(info.getString("type"));
+    }
+}
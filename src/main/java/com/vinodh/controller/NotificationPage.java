@@ -0,0 +1,11 @@
+package com.vinodh.controller;
+
+import com.vinodh.entity.SNMPNotificationEntity;
+
+import java.util.List;
+
+/**
+ * One keyset page of notifications. {@code nextCursor} is passed back as {@code cursor}
+ * to fetch the following page and is null on the last page.
+ */
+public record NotificationPage(List<SNMPNotificationEntity> items, String nextCursor) {}
@@ -1,12 +1,31 @@
 package com.vinodh.controller;
 
+import com.vinodh.archive.NotificationArchive;
 import com.vinodh.entity.SNMPNotificationEntity;
+import com.vinodh.metrics.TrapRateAnalytics;
 import com.vinodh.repository.SNMPNotificationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vinodh.service.DeadLetterStore;
+import com.vinodh.service.InternDictionary;
+import com.vinodh.service.LatestStateCache;
+import com.vinodh.service.NotificationFilter;
+import com.vinodh.service.NotificationQueryService;
+import com.vinodh.service.NotificationRetryQueue;
+import com.vinodh.service.UnindexedQueryException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,21 +35,175 @@ public class SNMPNotificationController {
 
     private static final Logger logger = LoggerFactory.getLogger(SNMPNotificationController.class);
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     @Autowired
     private SNMPNotificationRepository repository;
 
+    @Autowired
+    private InternDictionary dictionary;
+
+    @Autowired
+    private NotificationQueryService queryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LatestStateCache stateCache;
+
+    @Autowired
+    private TrapRateAnalytics rateAnalytics;
+
+    @Autowired
+    private NotificationArchive archive;
+
+    @Autowired
+    private DeadLetterStore deadLetters;
+
+    @Autowired
+    private NotificationRetryQueue retries;
+
     @GetMapping
-    public List<SNMPNotificationEntity> getAll() {
-        logger.debug("Handling GET /api/notifications - fetch all notifications");
-        List<SNMPNotificationEntity> all = repository.findAll();
-        logger.info("Retrieved {} notifications", all.size());
-        return all;
+    public ResponseEntity<NotificationPage> getAll(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(defaultValue = "ID") NotificationQueryService.SortKey sort,
+                                                   @RequestParam(defaultValue = "ASC") Sort.Direction direction) {
+        logger.debug("Handling GET /api/notifications - cursor={}, limit={}, sort={}, direction={}", cursor, limit, sort, direction);
+        try {
+            NotificationPage page = queryService.page(cursor, limit, sort, direction);
+            logger.info("Retrieved page of {} notifications", page.items().size());
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected notification page request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Filtered keyset pages ordered by {@code (timestamp, _id)}. Every filter is optional; {@code oidPrefix}
+     * matches the OID subtree and {@code from}/{@code to} (ISO-8601) bound the trap timestamp.
+     * Responds 422 when no index can serve the filter on a large collection.
+     */
+    @GetMapping("/query")
+    public ResponseEntity<NotificationPage> query(@RequestParam(required = false) String deviceId,
+                                                  @RequestParam(required = false) String oidPrefix,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                  @RequestParam(required = false) Boolean processed,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestParam(defaultValue = "ASC") Sort.Direction direction) {
+        NotificationFilter filter = new NotificationFilter(deviceId, oidPrefix, from, to, processed);
+        logger.debug("Handling GET /api/notifications/query - filter={}, cursor={}, limit={}, direction={}", filter, cursor, limit, direction);
+        try {
+            NotificationPage page = queryService.query(filter, cursor, limit, direction);
+            logger.info("Query matched page of {} notifications", page.items().size());
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected notification query: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (UnindexedQueryException e) {
+            logger.warn("Refused unindexed notification query: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+        }
+    }
+
+    /**
+     * Streams notifications as NDJSON straight from a Mongo cursor, one document per line,
+     * so exports run in constant server memory.
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "ID") NotificationQueryService.SortKey sort,
+                                                        @RequestParam(defaultValue = "ASC") Sort.Direction direction) {
+        logger.debug("Handling GET /api/notifications/stream - cursor={}, sort={}, direction={}", cursor, sort, direction);
+        Stream<SNMPNotificationEntity> notifications;
+        try {
+            notifications = queryService.stream(cursor, sort, direction);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected notification stream request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> {
+            long count = 0;
+            try (notifications) {
+                Iterator<SNMPNotificationEntity> it = notifications.iterator();
+                while (it.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(it.next()));
+                    out.write('\n');
+                    count++;
+                }
+            }
+            logger.info("Streamed {} notifications", count);
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    /**
+     * Current value of one OID on one device, answered from the in-memory latest-state cache.
+     */
+    @GetMapping("/latest")
+    public ResponseEntity<LatestStateCache.LatestState> latest(@RequestParam String deviceId,
+                                                               @RequestParam String oid) {
+        LatestStateCache.LatestState state = stateCache.get(deviceId, oid);
+        if (state == null) {
+            logger.debug("No latest state for deviceId={}, oid={}", deviceId, oid);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(state);
+    }
+
+    /**
+     * Trap rates over the analytics window with the busiest devices and OIDs.
+     */
+    @GetMapping("/rates")
+    public TrapRateAnalytics.TrapRates rates(@RequestParam(defaultValue = "10") int top) {
+        logger.debug("Handling GET /api/notifications/rates - top={}", top);
+        return rateAnalytics.rates(Math.max(1, Math.min(top, 100)));
+    }
+
+    /**
+     * Notifications whose Mongo write failed for good, oldest first, with the last error and attempt count.
+     */
+    @GetMapping("/dead-letters")
+    public List<DeadLetterStore.DeadLetter> deadLetters(@RequestParam(defaultValue = "100") int limit) {
+        logger.debug("Handling GET /api/notifications/dead-letters - limit={}", limit);
+        return deadLetters.list(Math.max(1, Math.min(limit, 1000)));
+    }
+
+    @GetMapping("/dead-letters/{id}")
+    public ResponseEntity<DeadLetterStore.DeadLetter> deadLetter(@PathVariable String id) {
+        DeadLetterStore.DeadLetter letter = deadLetters.get(id);
+        return letter == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(letter);
+    }
+
+    /**
+     * Writes dead letters again: the given ids, or up to {@code limit} of the oldest when none are given.
+     * Replayed notifications that fail again return to the store.
+     */
+    @PostMapping("/dead-letters/replay")
+    public ResponseEntity<Map<String, Integer>> replayDeadLetters(@RequestParam(required = false) List<String> id,
+                                                                   @RequestParam(defaultValue = "1000") int limit) {
+        logger.debug("Handling POST /api/notifications/dead-letters/replay - ids={}, limit={}", id, limit);
+        int replayed = retries.replay(id == null ? List.of() : id, Math.max(1, limit));
+        logger.info("Replaying {} dead letters", replayed);
+        return ResponseEntity.accepted().body(Map.of("replayed", replayed, "remaining", deadLetters.size()));
+    }
+
+    @DeleteMapping("/dead-letters")
+    public ResponseEntity<Void> clearDeadLetters() {
+        int dropped = deadLetters.clear();
+        logger.info("Discarded {} dead letters", dropped);
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<SNMPNotificationEntity> getById(@PathVariable String id) {
         logger.debug("Handling GET /api/notifications/{}", id);
-        Optional<SNMPNotificationEntity> notification = repository.findById(id);
+        // Falls back to the read-only archive for notifications already tiered out of Mongo
+        Optional<SNMPNotificationEntity> notification = repository.findById(id).map(dictionary::resolve)
+                .or(() -> archive.findById(id));
         if (notification.isPresent()) {
             logger.info("Notification {} found", id);
             return ResponseEntity.ok(notification.get());
@@ -45,9 +218,10 @@ public class SNMPNotificationController {
     public SNMPNotificationEntity create(@RequestBody SNMPNotificationEntity entity) {
         logger.debug("Handling POST /api/notifications - payload: {}", entity);
         entity.setProcessed(false);
+        dictionary.compact(entity);
         SNMPNotificationEntity saved = repository.save(entity);
         logger.info("Created notification with id={}", saved.getId());
-        return saved;
+        return dictionary.resolve(saved);
     }
 
     @PatchMapping("/{id}/processed")
@@ -60,7 +234,7 @@ public class SNMPNotificationController {
             existing.setProcessed(processed);
             repository.save(existing);
             logger.info("Marked notification {} as processed={}", id, processed);
-            return ResponseEntity.ok(existing);
+            return ResponseEntity.ok(dictionary.resolve(existing));
         } else {
             logger.warn("Cannot mark processed - notification {} not found", id);
             return ResponseEntity.notFound().build();
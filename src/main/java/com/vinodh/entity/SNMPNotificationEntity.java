@@ -1,25 +1,39 @@
 package com.vinodh.entity;
 
+import com.vinodh.service.TrapPriority;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+
 @Document(collection = "snmp_notifications")
 public class SNMPNotificationEntity {
     @Id
     private String id;
     private String deviceId;
     private String oid;
+    // Intern dictionary codes, stored instead of deviceId/oid when traps.intern.store-compact is set
+    private Integer deviceCode;
+    private Integer oidCode;
     private String value;
-    private String timestamp;
+    private Instant timestamp;
     private boolean processed;
     private String errorMessage;
+    // Trap-storm folding: identical traps within the dedup window are counted on the first record
+    private int occurrenceCount = 1;
+    private Instant firstSeen;
+    private Instant lastSeen;
+    // Batch writer scheduling class; not stored
+    @Transient
+    private TrapPriority priority;
 
     // 🟢 Default constructor (required by Spring Data)
     public SNMPNotificationEntity() {}
 
     // 🟢 Parameterized constructor (used in your service)
     public SNMPNotificationEntity(String deviceId, String oid, String value,
-                                  String timestamp, boolean processed, String errorMessage) {
+                                  Instant timestamp, boolean processed, String errorMessage) {
         this.deviceId = deviceId;
         this.oid = oid;
         this.value = value;
@@ -38,16 +52,34 @@ public class SNMPNotificationEntity {
     public String getOid() { return oid; }
     public void setOid(String oid) { this.oid = oid; }
 
+    public Integer getDeviceCode() { return deviceCode; }
+    public void setDeviceCode(Integer deviceCode) { this.deviceCode = deviceCode; }
+
+    public Integer getOidCode() { return oidCode; }
+    public void setOidCode(Integer oidCode) { this.oidCode = oidCode; }
+
     public String getValue() { return value; }
     public void setValue(String value) { this.value = value; }
 
-    public String getTimestamp() { return timestamp; }
-    public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
+    public Instant getTimestamp() { return timestamp; }
+    public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
 
     public boolean isProcessed() { return processed; }
     public void setProcessed(boolean processed) { this.processed = processed; }
 
     public String getErrorMessage() { return errorMessage; }
     public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public int getOccurrenceCount() { return occurrenceCount; }
+    public void setOccurrenceCount(int occurrenceCount) { this.occurrenceCount = occurrenceCount; }
+
+    public Instant getFirstSeen() { return firstSeen; }
+    public void setFirstSeen(Instant firstSeen) { this.firstSeen = firstSeen; }
+
+    public Instant getLastSeen() { return lastSeen; }
+    public void setLastSeen(Instant lastSeen) { this.lastSeen = lastSeen; }
+
+    public TrapPriority getPriority() { return priority; }
+    public void setPriority(TrapPriority priority) { this.priority = priority; }
 }
 
@@ -0,0 +1,83 @@
+package com.vinodh.executor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Keyed serial executor: tasks sharing a key (the deviceId) run one after another in submission
+ * order, while tasks for different keys run in parallel on the delegate executor.
+ * A lane exists only while it has queued or running work; the drainer removes it atomically
+ * once its queue is empty, so idle devices cost nothing.
+ */
+public class DeviceLaneExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceLaneExecutor.class);
+
+    private final Executor delegate;
+    private final Map<String, ArrayDeque<Runnable>> lanes = new ConcurrentHashMap<>();
+    private final DistributionSummary laneDepth;
+
+    public DeviceLaneExecutor(Executor delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+
+        this.laneDepth = DistributionSummary.builder("snmp_lane_queue_depth")
+                .description("Depth of a device lane right after a task was queued on it")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+
+        Gauge.builder("snmp_lanes_active", lanes, Map::size)
+                .description("Device lanes with queued or running work")
+                .register(registry);
+    }
+
+    public void execute(String key, Runnable task) {
+        // Lane queues are only touched inside compute(), which holds the map bin lock for that key
+        boolean[] newLane = new boolean[1];
+        int[] depth = new int[1];
+        lanes.compute(key, (k, lane) -> {
+            if (lane == null) {
+                lane = new ArrayDeque<>();
+                newLane[0] = true;
+            }
+            lane.add(task);
+            depth[0] = lane.size();
+            return lane;
+        });
+        laneDepth.record(depth[0]);
+
+        if (newLane[0]) {
+            delegate.execute(() -> drain(key, task));
+        }
+    }
+
+    private void drain(String key, Runnable first) {
+        Runnable next = first;
+        while (next != null) {
+            try {
+                next.run();
+            } catch (Throwable t) {
+                log.error("❌ Task failed on lane {}: {}", key, t.getMessage(), t);
+            }
+            next = poll(key);
+        }
+    }
+
+    // Drops the finished head and returns the next task, which stays queued while it runs; removes the lane once empty
+    private Runnable poll(String key) {
+        Runnable[] head = new Runnable[1];
+        lanes.computeIfPresent(key, (k, lane) -> {
+            lane.poll();
+            head[0] = lane.peek();
+            return head[0] == null ? null : lane;
+        });
+        return head[0];
+    }
+}
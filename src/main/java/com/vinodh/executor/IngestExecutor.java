@@ -0,0 +1,69 @@
+package com.vinodh.executor;
+
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs per-notification work in the execution mode selected by {@code traps.ingest.executor}:
+ * <ul>
+ *     <li>{@code virtual} - one virtual thread per notification, no ordering guarantee</li>
+ *     <li>{@code device-lanes} - notifications of the same device run in arrival order,
+ *     different devices run in parallel</li>
+ * </ul>
+ */
+@Component
+public class IngestExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestExecutor.class);
+
+    // Virtual thread executor (lightweight concurrency for I/O-bound workloads)
+    private static final ExecutorService VIRTUAL_EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("grpc-vt-", 0).factory());
+
+    private static final ContextSnapshotFactory CONTEXT = ContextSnapshotFactory.builder().build();
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.ingest.executor:virtual}")
+    private String mode;
+
+    private DeviceLaneExecutor laneExecutor;
+
+    @PostConstruct
+    void init() {
+        switch (mode) {
+            case "virtual" -> laneExecutor = null;
+            case "device-lanes" -> laneExecutor = new DeviceLaneExecutor(VIRTUAL_EXECUTOR, registry);
+            default -> throw new IllegalStateException("Unknown traps.ingest.executor mode: " + mode);
+        }
+        log.info("🧵 Ingest executor mode: {}", mode);
+    }
+
+    /** True in the {@code device-lanes} mode, where tasks of one device run in arrival order. */
+    public boolean isOrdered() {
+        return laneExecutor != null;
+    }
+
+    /**
+     * Runs the task for the given device; the future completes when the task has finished.
+     */
+    public CompletableFuture<Void> submit(String deviceId, Runnable task) {
+        // Carry the caller's observation over so trace_id/span_id stay in the MDC of hot-path log lines
+        task = CONTEXT.captureAll().wrap(task);
+        if (laneExecutor == null) {
+            return CompletableFuture.runAsync(task, VIRTUAL_EXECUTOR);
+        }
+        return CompletableFuture.runAsync(task, command -> laneExecutor.execute(deviceId, command));
+    }
+}
@@ -0,0 +1,214 @@
+package com.vinodh.grpc;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive limit on notifications being processed at once, derived from their observed latency.
+ * <p>
+ * Latency samples are averaged per update interval (the short estimate) and folded into a slow
+ * moving baseline (the long estimate). While the short estimate stays within {@code tolerance} of
+ * the baseline the limit grows by about its square root per interval; once persistence slows down
+ * the limit shrinks in proportion, by at most half per interval (a gradient limit in the style of
+ * TCP Vegas). The limit is not raised in intervals that never used half of it.
+ * <p>
+ * Existing streams take priority: a new stream is only admitted below
+ * {@code stream-admission-ratio} of the limit, while messages of open streams are refused only at
+ * the limit itself, and critical traps are never refused. Refusals carry a retry delay derived from
+ * the latency baseline.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    /** Trailer honoured by gRPC client retry policies (gRFC A6). */
+    static final Metadata.Key<String> RETRY_PUSHBACK = Metadata.Key.of("grpc-retry-pushback-ms", Metadata.ASCII_STRING_MARSHALLER);
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.ingest.limiter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${traps.ingest.limiter.initial-limit:1000}")
+    private int initialLimit;
+
+    @Value("${traps.ingest.limiter.min-limit:50}")
+    private int minLimit;
+
+    @Value("${traps.ingest.limiter.max-limit:20000}")
+    private int maxLimit;
+
+    @Value("${traps.ingest.limiter.tolerance:1.5}")
+    private double tolerance;
+
+    @Value("${traps.ingest.limiter.smoothing:0.2}")
+    private double smoothing;
+
+    @Value("${traps.ingest.limiter.update-interval-ms:100}")
+    private long updateIntervalMs;
+
+    // Intervals averaged into the latency baseline
+    @Value("${traps.ingest.limiter.baseline-intervals:600}")
+    private int baselineIntervals;
+
+    @Value("${traps.ingest.limiter.stream-admission-ratio:0.8}")
+    private double streamAdmissionRatio;
+
+    @Value("${traps.ingest.limiter.pushback-min-ms:100}")
+    private long pushbackMinMs;
+
+    @Value("${traps.ingest.limiter.pushback-max-ms:5000}")
+    private long pushbackMaxMs;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder sampleNanos = new LongAdder();
+    private final LongAdder sampleCount = new LongAdder();
+    private final AtomicLong nextUpdate = new AtomicLong();
+    private long updateIntervalNanos;
+    private volatile double limit;
+    private volatile double shortLatencyNanos;
+    private volatile double longLatencyNanos;
+    private Counter rejectedStreams;
+    private Counter rejectedNotifications;
+
+    @PostConstruct
+    void init() {
+        limit = initialLimit;
+        updateIntervalNanos = TimeUnit.MILLISECONDS.toNanos(updateIntervalMs);
+        nextUpdate.set(System.nanoTime() + updateIntervalNanos);
+
+        Gauge.builder("snmp_ingest_limit", this, l -> l.limit)
+                .description("Current adaptive limit on notifications processed at once")
+                .register(registry);
+        Gauge.builder("snmp_ingest_limit_in_flight", inFlight, AtomicInteger::get)
+                .description("Notifications counted against the adaptive limit")
+                .register(registry);
+        Gauge.builder("snmp_ingest_latency_estimate_seconds", this, l -> l.shortLatencyNanos / 1e9)
+                .tag("window", "short")
+                .description("Processing latency estimate the adaptive limit is derived from")
+                .register(registry);
+        Gauge.builder("snmp_ingest_latency_estimate_seconds", this, l -> l.longLatencyNanos / 1e9)
+                .tag("window", "long")
+                .description("Processing latency estimate the adaptive limit is derived from")
+                .register(registry);
+        rejectedStreams = rejected("stream");
+        rejectedNotifications = rejected("notification");
+
+        log.info("🚦 Adaptive concurrency limit {}: initial={}, min={}, max={}",
+                enabled ? "enabled" : "disabled (measuring only)", initialLimit, minLimit, maxLimit);
+    }
+
+    private Counter rejected(String scope) {
+        return Counter.builder("snmp_ingest_rejected")
+                .tag("scope", scope)
+                .description("Work refused with RESOURCE_EXHAUSTED by the adaptive limit")
+                .register(registry);
+    }
+
+    /** Whether a new stream may open; rejected streams are counted. */
+    public boolean admitStream() {
+        if (!enabled || inFlight.get() < limit * streamAdmissionRatio) {
+            return true;
+        }
+        rejectedStreams.increment();
+        return false;
+    }
+
+    /**
+     * Takes {@code permits} slots for notifications of an open stream, all or none.
+     * Every successful call must be matched by {@link #release(int, long)}.
+     */
+    public boolean tryAcquire(int permits) {
+        int current = inFlight.addAndGet(permits);
+        if (enabled && current > limit && current > permits) {
+            inFlight.addAndGet(-permits);
+            rejectedNotifications.increment(permits);
+            return false;
+        }
+        peakInFlight.accumulateAndGet(current, Math::max);
+        return true;
+    }
+
+    /** Takes slots without checking the limit, for critical traps, which are never refused. */
+    public void acquire(int permits) {
+        peakInFlight.accumulateAndGet(inFlight.addAndGet(permits), Math::max);
+    }
+
+    /** Returns the slots and records how long their processing took since {@code startedNanos}. */
+    public void release(int permits, long startedNanos) {
+        inFlight.addAndGet(-permits);
+        if (permits == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        sampleNanos.add(now - startedNanos);
+        sampleCount.increment();
+        long due = nextUpdate.get();
+        if (now - due >= 0 && nextUpdate.compareAndSet(due, now + updateIntervalNanos)) {
+            update();
+        }
+    }
+
+    /** Suggested client back-off: twice the latency baseline, within the configured bounds. */
+    public long pushbackMillis() {
+        long millis = TimeUnit.NANOSECONDS.toMillis((long) (2 * longLatencyNanos));
+        return Math.max(pushbackMinMs, Math.min(pushbackMaxMs, millis));
+    }
+
+    /** RESOURCE_EXHAUSTED with the retry pushback trailer, for closing a refused call. */
+    public StatusRuntimeException overloaded(String description) {
+        Metadata trailers = new Metadata();
+        trailers.put(RETRY_PUSHBACK, Long.toString(pushbackMillis()));
+        return Status.RESOURCE_EXHAUSTED.withDescription(description).asRuntimeException(trailers);
+    }
+
+    // Runs on the releasing thread that won the interval, so one update at a time
+    private void update() {
+        long count = sampleCount.sumThenReset();
+        long total = sampleNanos.sumThenReset();
+        int peak = peakInFlight.getAndSet(inFlight.get());
+        if (count == 0) {
+            return;
+        }
+        double shortLatency = (double) total / count;
+        double longLatency = longLatencyNanos == 0 ? shortLatency
+                : longLatencyNanos + (shortLatency - longLatencyNanos) * 2 / (baselineIntervals + 1);
+        if (longLatency / shortLatency > 2) {
+            // Latency recovered after an overload; let the baseline come down faster
+            longLatency *= 0.95;
+        }
+        shortLatencyNanos = shortLatency;
+        longLatencyNanos = longLatency;
+
+        double current = limit;
+        if (peak < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / shortLatency));
+        double target = current * gradient + Math.sqrt(current);
+        double next = Math.max(minLimit, Math.min(maxLimit, current * (1 - smoothing) + target * smoothing));
+        limit = next;
+        if ((int) next != (int) current && gradient < 1.0) {
+            log.debug("📉 Ingest limit {} -> {} (latency short={}µs, long={}µs)", (int) current, (int) next,
+                    (long) (shortLatency / 1000), (long) (longLatency / 1000));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.vinodh.grpc;
+
+import com.vinodh.BatchAck;
+import com.vinodh.BatchFailure;
+import com.vinodh.FailureCode;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Cumulative acknowledgement state of one {@code StreamNotificationBatches} call.
+ * Batches may finish out of order; an ack is emitted only when the run of finished batches at the
+ * head of the stream grows, and it carries the highest contiguous sequence plus the failures of
+ * every batch it covers. Sequences must be consecutive within a call, so arrival order is sequence order
+ * and an ack never covers a batch that was not received; any other sequence fails the call with
+ * INVALID_ARGUMENT. Acks and stream completion are serialized on this tracker.
+ */
+final class BatchAckTracker {
+
+    private final StreamObserver<BatchAck> responseObserver;
+    private final ArrayDeque<PendingBatch> outstanding = new ArrayDeque<>();
+    private boolean clientDone;
+    private boolean closed;
+    private boolean started;
+    private long lastSequence;
+
+    BatchAckTracker(StreamObserver<BatchAck> responseObserver) {
+        this.responseObserver = responseObserver;
+    }
+
+    /** Tracks the next batch; returns null if the call is closed or the sequence does not follow the previous one. */
+    synchronized PendingBatch register(long sequence, int size) {
+        if (closed) {
+            return null;
+        }
+        if (started && sequence != lastSequence + 1) {
+            String description = "Batch sequence " + Long.toUnsignedString(sequence)
+                    + " does not follow " + Long.toUnsignedString(lastSequence);
+            closed = true;
+            outstanding.clear();
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(description).asRuntimeException());
+            return null;
+        }
+        started = true;
+        lastSequence = sequence;
+        PendingBatch batch = new PendingBatch(sequence, size);
+        outstanding.add(batch);
+        return batch;
+    }
+
+    synchronized void complete(PendingBatch batch) {
+        batch.done = true;
+        if (closed) {
+            return;
+        }
+
+        BatchAck.Builder ack = null;
+        while (!outstanding.isEmpty() && outstanding.peek().done) {
+            PendingBatch head = outstanding.poll();
+            if (ack == null) {
+                ack = BatchAck.newBuilder();
+            }
+            ack.setAckedThrough(head.sequence);
+            ack.setRetryAfterMs(Math.max(ack.getRetryAfterMs(), head.retryAfterMs));
+            head.addFailuresTo(ack);
+        }
+        if (ack != null) {
+            responseObserver.onNext(ack.build());
+        }
+        completeIfDrained();
+    }
+
+    /** The client half-closed; the call completes once every outstanding batch is acked. */
+    synchronized void finish() {
+        clientDone = true;
+        completeIfDrained();
+    }
+
+    /** The call was cancelled or failed; nothing more is sent. */
+    synchronized void cancel() {
+        closed = true;
+        outstanding.clear();
+    }
+
+    private void completeIfDrained() {
+        if (clientDone && !closed && outstanding.isEmpty()) {
+            closed = true;
+            responseObserver.onCompleted();
+        }
+    }
+
+    static final class PendingBatch {
+
+        private final long sequence;
+        private final int size;
+        private FailureCode[] failures; // allocated on first failure only
+        private int retryAfterMs;
+        private boolean done;
+
+        private PendingBatch(long sequence, int size) {
+            this.sequence = sequence;
+            this.size = size;
+        }
+
+        synchronized void fail(int index, FailureCode code) {
+            if (failures == null) {
+                failures = new FailureCode[size];
+            }
+            failures[index] = code;
+        }
+
+        /** Refuses the whole batch as RESOURCE_EXHAUSTED; the ack asks the client to wait before resending it. */
+        synchronized void reject(long retryAfterMs) {
+            failures = new FailureCode[size];
+            Arrays.fill(failures, FailureCode.RESOURCE_EXHAUSTED);
+            this.retryAfterMs = (int) retryAfterMs;
+        }
+
+        /** Refuses one notification as RESOURCE_EXHAUSTED; the ack asks the client to wait before resending it. */
+        synchronized void reject(int index, long retryAfterMs) {
+            fail(index, FailureCode.RESOURCE_EXHAUSTED);
+            this.retryAfterMs = Math.max(this.retryAfterMs, (int) retryAfterMs);
+        }
+
+        private synchronized void addFailuresTo(BatchAck.Builder ack) {
+            if (failures == null) {
+                return;
+            }
+            for (int i = 0; i < failures.length; i++) {
+                if (failures[i] != null) {
+                    ack.addFailures(BatchFailure.newBuilder()
+                            .setSequence(sequence)
+                            .setIndex(i)
+                            .setCode(failures[i]));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.vinodh.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manual gRPC flow control for inbound notification streams.
+ * Every message is requested from the transport only after a credit has been taken from both
+ * the per-stream window and the global window, so a slow Mongo stops {@code request(n)} calls
+ * and HTTP/2 flow control pushes back on the collectors instead of queueing work on the heap.
+ */
+@Component
+public class IngestFlowController {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestFlowController.class);
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.ingest.flow-control.per-stream-window:256}")
+    private int perStreamWindow;
+
+    @Value("${traps.ingest.flow-control.global-window:20000}")
+    private int globalWindow;
+
+    private Semaphore globalCredits;
+
+    // Streams waiting for a global credit, served in arrival order
+    private final Queue<StreamWindow> starved = new ConcurrentLinkedQueue<>();
+    private final Set<StreamWindow> openWindows = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        globalCredits = new Semaphore(globalWindow);
+
+        Gauge.builder("snmp_ingest_inflight_total", this, c -> c.globalWindow - c.globalCredits.availablePermits())
+                .description("Notifications requested or being processed across all streams")
+                .register(registry);
+
+        Gauge.builder("snmp_ingest_inflight_stream_max", openWindows,
+                        windows -> windows.stream().mapToInt(StreamWindow::inFlight).max().orElse(0))
+                .description("Largest in-flight count of any single open stream")
+                .register(registry);
+
+        Gauge.builder("snmp_ingest_streams_open", openWindows, Set::size)
+                .description("Notification streams currently under flow control")
+                .register(registry);
+
+        Gauge.builder("snmp_ingest_streams_starved", starved, Queue::size)
+                .description("Streams waiting for a global in-flight credit")
+                .register(registry);
+
+        log.info("🚦 Ingest flow control enabled: perStreamWindow={}, globalWindow={}", perStreamWindow, globalWindow);
+    }
+
+    /**
+     * Opens a window for a stream whose auto-request has been disabled and requests the first batch of messages.
+     */
+    public StreamWindow open(ServerCallStreamObserver<?> call) {
+        StreamWindow window = new StreamWindow(call);
+        openWindows.add(window);
+        window.refill();
+        return window;
+    }
+
+    private void releaseGlobal(int credits) {
+        globalCredits.release(credits);
+        StreamWindow next;
+        while (globalCredits.availablePermits() > 0 && (next = starved.poll()) != null) {
+            if (next.parked.compareAndSet(true, false)) {
+                next.refill();
+            }
+        }
+    }
+
+    /**
+     * Credit accounting for a single inbound stream.
+     * In-flight covers both messages requested from the transport and messages still being processed.
+     */
+    public final class StreamWindow {
+
+        private final ServerCallStreamObserver<?> call;
+        private final AtomicInteger requested = new AtomicInteger();
+        private final AtomicInteger processing = new AtomicInteger();
+        private final AtomicBoolean parked = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private StreamWindow(ServerCallStreamObserver<?> call) {
+            this.call = call;
+        }
+
+        int inFlight() {
+            return requested.get() + processing.get();
+        }
+
+        /**
+         * A requested message has arrived and is now being processed.
+         * Returns false if the window is already closed, in which case its credit has been returned.
+         */
+        public synchronized boolean onMessage() {
+            if (closed) {
+                return false;
+            }
+            requested.decrementAndGet();
+            processing.incrementAndGet();
+            return true;
+        }
+
+        /** A message has been fully processed and acked; its credit goes back to the windows. */
+        public void onProcessed() {
+            processing.decrementAndGet();
+            releaseGlobal(1);
+            refill();
+        }
+
+        /** The stream is finished; credits for messages that will never arrive are returned. */
+        public void close() {
+            int unused;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                unused = requested.getAndSet(0);
+            }
+            openWindows.remove(this);
+            if (unused > 0) {
+                releaseGlobal(unused);
+            }
+        }
+
+        private synchronized void refill() {
+            while (!closed && inFlight() < perStreamWindow) {
+                if (!globalCredits.tryAcquire()) {
+                    if (parked.compareAndSet(false, true)) {
+                        starved.add(this);
+                    }
+                    // A credit may have been released between the failed acquire and parking
+                    if (!globalCredits.tryAcquire()) {
+                        return;
+                    }
+                    parked.set(false);
+                }
+                requested.incrementAndGet();
+                call.request(1);
+            }
+        }
+    }
+}
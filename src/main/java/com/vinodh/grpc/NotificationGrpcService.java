@@ -1,20 +1,28 @@
 package com.vinodh.grpc;
 
+import com.vinodh.BatchAck;
+import com.vinodh.FailureCode;
+import com.vinodh.NotificationBatch;
 import com.vinodh.NotificationServiceGrpc;
 import com.vinodh.ProcessStatus;
 import com.vinodh.SNMPNotification;
-import com.vinodh.service.NotificationProcessorService;
-import io.grpc.Status;
+import com.vinodh.cluster.ForwardedCallInterceptor;
+import com.vinodh.cluster.ShardRouter;
+import com.vinodh.service.NotificationIngestPipeline;
+import com.vinodh.service.TrapPriority;
+import com.vinodh.service.TrapPriorityClassifier;
+import com.vinodh.tracing.NotificationTracing;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import net.devh.boot.grpc.server.service.GrpcService;
-import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * High-performance gRPC server implementation using Java Virtual Threads (JDK 21+).
@@ -27,11 +35,22 @@ public class NotificationGrpcService extends NotificationServiceGrpc.Notificatio
     private static final Logger log = LoggerFactory.getLogger(NotificationGrpcService.class);
 
     @Autowired
-    private NotificationProcessorService processorService;
+    private IngestFlowController flowController;
 
-    // Virtual thread executor (lightweight concurrency for I/O-bound workloads)
-    private static final ExecutorService VIRTUAL_EXECUTOR =
-            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("grpc-vt-", 0).factory());
+    @Autowired
+    private NotificationTracing tracing;
+
+    // Sheds load with RESOURCE_EXHAUSTED when processing latency rises
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
+    // OID to severity; critical traps skip load shedding and jump the batch writer queue
+    @Autowired
+    private TrapPriorityClassifier priorities;
+
+    // Hands each notification to the ingest pipeline here or forwards it to the instance owning its device
+    @Autowired
+    private ShardRouter router;
 
     private static final ExecutorService VIRTUAL_THREAD_EXECUTOR =
             Executors.newVirtualThreadPerTaskExecutor();
@@ -41,118 +60,284 @@ public class NotificationGrpcService extends NotificationServiceGrpc.Notificatio
 
         log.info("🚀 gRPC streamNotifications() started — using Virtual Threads for concurrent processing.");
 
-        List<CompletableFuture<Void>> tasks = new CopyOnWriteArrayList<>();
+        // Calls from another instance carry traps it forwarded here as their owner; its own limiter already admitted them
+        boolean forwarded = ForwardedCallInterceptor.isForwarded();
+        if (!forwarded && !limiter.admitStream()) {
+            log.warn("⚠️ Rejecting new notification stream: ingest is at its concurrency limit");
+            responseObserver.onError(limiter.overloaded("Server overloaded, retry later"));
+            return rejected();
+        }
+
+        // Manual flow control: messages are only requested while the in-flight windows have room
+        ServerCallStreamObserver<ProcessStatus> serverObserver = (ServerCallStreamObserver<ProcessStatus>) responseObserver;
+        serverObserver.disableAutoRequest();
+        IngestFlowController.StreamWindow window = flowController.open(serverObserver);
+        // One span for the whole stream; per-notification errors and slow traps are recorded on it
+        NotificationTracing.Trace trace = tracing.start("snmp.notification.stream");
 
         return new StreamObserver<>() {
             private volatile boolean isClosed = false;
+            private volatile boolean clientDone = false;
+            private final AtomicInteger pending = new AtomicInteger();
+            private final AtomicBoolean completed = new AtomicBoolean();
 
             @Override
             public void onNext(SNMPNotification request) {
+                if (!window.onMessage()) {
+                    log.warn("⚠️ Received message after stream closed, ignoring...");
+                    return;
+                }
                 if (isClosed) {
                     log.warn("⚠️ Received message after stream closed, ignoring...");
+                    window.onProcessed();
                     return;
                 }
 
                 log.debug("📩 Incoming SNMP notification: deviceId={}, oid={}, value={}, timestamp={}",
                         request.getDeviceId(), request.getOid(), request.getValue(), request.getTimestamp());
 
-                // Each request handled by a lightweight virtual thread
-                CompletableFuture<Void> task = CompletableFuture.runAsync(() -> {
-                    try {
-
-                        // Get and log the virtual thread's name
-                        String threadName = Thread.currentThread().getName();
-                        log.info("🔧 Processing SNMP notification on thread: {}", threadName);
-
-                        // Validation
-                        if (request.getDeviceId().isBlank()) {
-                            throw new IllegalArgumentException("Device ID is required");
-                        }
-
-                        // Simulate controlled error scenario
-                        if ("1.3.6.1.2.1.22".equals(request.getOid())) {
-                            throw new RuntimeException("Simulated database failure");
-                        }
-
-                        // Actual persistence
-                        processorService.processNotification(
-                                request.getDeviceId(),
-                                request.getOid(),
-                                request.getValue(),
-                                request.getTimestamp()
-                        );
-
-                        log.info("✅ [VT] Processed notification for deviceId={}", request.getDeviceId());
+                TrapPriority priority = priorities.classify(request.getOid());
+                if (!admit(1, priority == TrapPriority.CRITICAL, forwarded)) {
+                    // Refused before any work; the collector may resend it after retryAfterMs
+                    synchronized (responseObserver) {
+                        responseObserver.onNext(ProcessStatus.newBuilder()
+                                .setSuccess(false)
+                                .setErrorCode("RESOURCE_EXHAUSTED")
+                                .setMessage("Rejected: " + request.getDeviceId())
+                                .setRetryAfterMs((int) limiter.pushbackMillis())
+                                .build());
+                    }
+                    window.onProcessed();
+                    return;
+                }
+                long started = System.nanoTime();
 
+                // Each request handled by a lightweight virtual thread (in order per device when lanes are enabled),
+                // or chained off its write in the reactive persistence mode; devices owned by another instance are forwarded there
+                pending.incrementAndGet();
+                router.process(request, priority, trace, new NotificationIngestPipeline.Outcome() {
+                    @Override
+                    public void processed() {
                         synchronized (responseObserver) {
                             responseObserver.onNext(ProcessStatus.newBuilder()
                                     .setSuccess(true)
                                     .setMessage("Processed: " + request.getDeviceId())
                                     .build());
                         }
+                    }
 
-                    } catch (IllegalArgumentException e) {
-                        log.warn("⚠️ Validation failed for deviceId={}, reason={}", request.getDeviceId(), e.getMessage());
-                        processorService.handleError(
-                                request.getDeviceId(),
-                                request.getOid(),
-                                request.getValue(),
-                                request.getTimestamp(),
-                                e.getMessage()
-                        );
-
+                    @Override
+                    public void validationFailed(String reason) {
                         synchronized (responseObserver) {
                             responseObserver.onNext(ProcessStatus.newBuilder()
                                     .setSuccess(false)
                                     .setErrorCode("VALIDATION_ERROR")
-                                    .setMessage(e.getMessage())
+                                    .setMessage(reason)
                                     .build());
                         }
+                    }
 
-                    } catch (Exception e) {
-                        log.error("❌ Internal error for deviceId={}: {}", request.getDeviceId(), e.getMessage(), e);
-                        processorService.handleError(
-                                request.getDeviceId(),
-                                request.getOid(),
-                                request.getValue(),
-                                request.getTimestamp(),
-                                "Internal error: " + e.getMessage()
-                        );
-
-                        if (!isClosed) {
-                            isClosed = true;
-                            synchronized (responseObserver) {
-                                responseObserver.onError(Status.INTERNAL
-                                        .withDescription("Internal server error: " + e.getMessage())
-                                        .asRuntimeException());
-                            }
+                    @Override
+                    public void internalError(Throwable e) {
+                        // Answered in-band so one failed notification does not tear down the stream and its in-flight traps
+                        synchronized (responseObserver) {
+                            responseObserver.onNext(ProcessStatus.newBuilder()
+                                    .setSuccess(false)
+                                    .setErrorCode("INTERNAL")
+                                    .setMessage("Failed: " + request.getDeviceId())
+                                    .build());
                         }
                     }
-                }, VIRTUAL_EXECUTOR);
 
-                tasks.add(task);
+                    @Override
+                    public void rejected(Throwable e) {
+                        synchronized (responseObserver) {
+                            responseObserver.onNext(ProcessStatus.newBuilder()
+                                    .setSuccess(false)
+                                    .setErrorCode("RESOURCE_EXHAUSTED")
+                                    .setMessage("Rejected: " + request.getDeviceId())
+                                    .setRetryAfterMs((int) limiter.pushbackMillis())
+                                    .build());
+                        }
+                    }
+                }, forwarded).whenComplete((v, ex) -> {
+                    if (ex != null) {
+                        log.error("❌ Error completing notification task: {}", ex.getMessage(), ex);
+                    }
+                    if (!forwarded) {
+                        limiter.release(1, started);
+                    }
+                    // Hand the credit back so the next message can be requested from the transport
+                    window.onProcessed();
+                    if (pending.decrementAndGet() == 0 && clientDone) {
+                        completeStream();
+                    }
+                });
             }
 
             @Override
             public void onError(Throwable t) {
                 log.error("❌ Client stream error: {}", t.getMessage(), t);
                 isClosed = true;
+                window.close();
+                trace.end();
             }
 
             @Override
             public void onCompleted() {
                 log.info("⏳ Client finished sending — waiting for all virtual threads to complete...");
-                CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]))
-                        .whenComplete((v, ex) -> {
-                            if (ex != null) {
-                                log.error("❌ Error completing virtual thread tasks: {}", ex.getMessage(), ex);
-                            }
-                            if (!isClosed) {
-                                log.info("✅ All SNMP notifications processed successfully. Closing gRPC stream.");
-                                responseObserver.onCompleted();
-                                isClosed = true;
-                            }
-                        });
+                clientDone = true;
+                window.close();
+                if (pending.get() == 0) {
+                    completeStream();
+                }
+            }
+
+            private void completeStream() {
+                if (completed.compareAndSet(false, true) && !isClosed) {
+                    log.info("✅ All SNMP notifications processed successfully. Closing gRPC stream.");
+                    isClosed = true;
+                    trace.end();
+                    synchronized (responseObserver) {
+                        responseObserver.onCompleted();
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public StreamObserver<NotificationBatch> streamNotificationBatches(StreamObserver<BatchAck> responseObserver) {
+
+        log.info("🚀 gRPC streamNotificationBatches() started — cumulative acks per batch sequence.");
+
+        boolean forwarded = ForwardedCallInterceptor.isForwarded();
+        if (!forwarded && !limiter.admitStream()) {
+            log.warn("⚠️ Rejecting new batch stream: ingest is at its concurrency limit");
+            responseObserver.onError(limiter.overloaded("Server overloaded, retry later"));
+            return rejected();
+        }
+
+        // Same flow control as streamNotifications; one credit covers one batch
+        ServerCallStreamObserver<BatchAck> serverObserver = (ServerCallStreamObserver<BatchAck>) responseObserver;
+        serverObserver.disableAutoRequest();
+        IngestFlowController.StreamWindow window = flowController.open(serverObserver);
+        BatchAckTracker tracker = new BatchAckTracker(responseObserver);
+
+        return new StreamObserver<>() {
+
+            @Override
+            public void onNext(NotificationBatch batch) {
+                if (!window.onMessage()) {
+                    log.warn("⚠️ Received batch after stream closed, ignoring...");
+                    return;
+                }
+
+                log.debug("📦 Incoming notification batch: sequence={}, size={}", batch.getSequence(), batch.getNotificationsCount());
+
+                BatchAckTracker.PendingBatch pendingBatch = tracker.register(batch.getSequence(), batch.getNotificationsCount());
+                if (pendingBatch == null) {
+                    log.warn("⚠️ Rejecting batch stream: sequence={} is not consecutive", batch.getSequence());
+                    window.onProcessed();
+                    window.close();
+                    return;
+                }
+                TrapPriority[] batchPriorities = new TrapPriority[batch.getNotificationsCount()];
+                boolean critical = false;
+                for (int i = 0; i < batchPriorities.length; i++) {
+                    batchPriorities[i] = priorities.classify(batch.getNotifications(i).getOid());
+                    critical |= batchPriorities[i] == TrapPriority.CRITICAL;
+                }
+                // A batch is refused whole, so one critical trap keeps the batch in
+                if (!admit(batchPriorities.length, critical, forwarded)) {
+                    pendingBatch.reject(limiter.pushbackMillis());
+                    tracker.complete(pendingBatch);
+                    window.onProcessed();
+                    return;
+                }
+                long started = System.nanoTime();
+                // One span per batch rather than per notification
+                NotificationTracing.Trace trace = tracing.start("snmp.notification.batch");
+                CompletableFuture<?>[] tasks = new CompletableFuture<?>[batch.getNotificationsCount()];
+                for (int i = 0; i < tasks.length; i++) {
+                    SNMPNotification request = batch.getNotifications(i);
+                    int index = i;
+                    tasks[i] = router.process(request, batchPriorities[i], trace, new NotificationIngestPipeline.Outcome() {
+                        @Override
+                        public void processed() {
+                        }
+
+                        @Override
+                        public void validationFailed(String reason) {
+                            pendingBatch.fail(index, FailureCode.VALIDATION_ERROR);
+                        }
+
+                        @Override
+                        public void internalError(Throwable e) {
+                            pendingBatch.fail(index, FailureCode.INTERNAL);
+                        }
+
+                        @Override
+                        public void rejected(Throwable e) {
+                            pendingBatch.reject(index, limiter.pushbackMillis());
+                        }
+                    }, forwarded);
+                }
+
+                CompletableFuture.allOf(tasks).whenComplete((v, ex) -> {
+                    if (ex != null) {
+                        log.error("❌ Error completing batch sequence={}: {}", batch.getSequence(), ex.getMessage(), ex);
+                    }
+                    if (!forwarded) {
+                        limiter.release(tasks.length, started);
+                    }
+                    trace.end();
+                    tracker.complete(pendingBatch);
+                    window.onProcessed();
+                });
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.error("❌ Client batch stream error: {}", t.getMessage(), t);
+                tracker.cancel();
+                window.close();
+            }
+
+            @Override
+            public void onCompleted() {
+                log.info("⏳ Client finished sending batches — waiting for outstanding batches to be acked...");
+                window.close();
+                tracker.finish();
+            }
+        };
+    }
+
+    // Forwarded traps were admitted by the instance that forwarded them; critical traps are never shed
+    private boolean admit(int permits, boolean critical, boolean forwarded) {
+        if (forwarded) {
+            return true;
+        }
+        if (critical) {
+            limiter.acquire(permits);
+            return true;
+        }
+        return limiter.tryAcquire(permits);
+    }
+
+    // Stands in for a call already closed with RESOURCE_EXHAUSTED
+    private static <T> StreamObserver<T> rejected() {
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(T value) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onCompleted() {
             }
         };
     }
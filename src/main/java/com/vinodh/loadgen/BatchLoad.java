@@ -0,0 +1,110 @@
+package com.vinodh.loadgen;
+
+import com.vinodh.BatchAck;
+import com.vinodh.BatchFailure;
+import com.vinodh.NotificationBatch;
+import io.grpc.ManagedChannel;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Drives {@code StreamNotificationBatches}. Each cumulative BatchAck settles every batch up to its
+ * {@code ackedThrough}, so the latency of a whole batch is recorded at once, weighted by its size.
+ * The closed-loop window is counted in traps and rounded to whole batches.
+ */
+final class BatchLoad extends LoadStream {
+
+    private long sequence;
+    private long trapSequence;
+
+    BatchLoad(LoadOptions options, TrafficModel model, LoadStats stats, ManagedChannel channel, long deadlineNanos) {
+        super(options, model, stats, channel, deadlineNanos);
+    }
+
+    @Override
+    protected void runStream() {
+        StreamHealth health = new StreamHealth();
+        int batchSize = options.batchSize();
+        Semaphore window = new Semaphore(Math.max(1, options.window() / batchSize));
+        // Send time per batch sequence
+        Map<Long, Long> inFlight = new ConcurrentHashMap<>();
+
+        StreamObserver<BatchAck> responses = new StreamObserver<>() {
+            // Response callbacks of one call never run concurrently
+            private long ackedThrough = sequence;
+
+            @Override
+            public void onNext(BatchAck ack) {
+                long batches = 0;
+                for (long s = ackedThrough + 1; s <= ack.getAckedThrough(); s++) {
+                    Long sentAt = inFlight.remove(s);
+                    if (sentAt != null) {
+                        stats.recordLatency(sentAt, batchSize);
+                        batches++;
+                    }
+                }
+                ackedThrough = Math.max(ackedThrough, ack.getAckedThrough());
+                for (BatchFailure failure : ack.getFailuresList()) {
+                    switch (failure.getCode()) {
+                        case VALIDATION_ERROR -> stats.validationErrors.increment();
+                        case INTERNAL -> stats.internalErrors.increment();
+                        case RESOURCE_EXHAUSTED -> stats.rejected.increment();
+                        default -> stats.unmatched.increment();
+                    }
+                }
+                stats.acked.add(Math.max(0, batches * batchSize - ack.getFailuresCount()));
+                if (!options.openLoop() && batches > 0) {
+                    window.release((int) batches);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                health.broken = true;
+                recordPushback(t);
+                stats.lost.add((long) inFlight.size() * batchSize);
+                inFlight.clear();
+                stats.streamResets.increment();
+                health.done.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                health.done.countDown();
+            }
+        };
+
+        ClientCallStreamObserver<NotificationBatch> requests = (ClientCallStreamObserver<NotificationBatch>)
+                stub().streamNotificationBatches(responses);
+        try {
+            while (!expired() && !health.broken) {
+                long intended;
+                if (options.openLoop()) {
+                    intended = awaitNextSend(batchSize);
+                } else if (acquire(window, 1, health)) {
+                    intended = System.nanoTime();
+                } else {
+                    break;
+                }
+                if (!awaitReady(requests, health)) {
+                    break;
+                }
+                NotificationBatch.Builder batch = NotificationBatch.newBuilder().setSequence(++sequence);
+                for (int i = 0; i < batchSize; i++) {
+                    batch.addNotifications(model.next(intended, trapSequence++));
+                }
+                inFlight.put(sequence, intended);
+                requests.onNext(batch.build());
+                stats.sent.add(batchSize);
+            }
+            drain(requests, health);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            requests.cancel("load generator interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.vinodh.loadgen;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line options of {@link TrapLoadGenerator}, given as {@code --name=value}.
+ *
+ * @param target        gRPC address of the server
+ * @param embedded      start the server in-process with the {@code loadtest} profile (Mongo stand-in)
+ * @param api           {@code stream} (one ProcessStatus per trap) or {@code batch} (cumulative BatchAcks)
+ * @param rate          target traps per second over all streams; 0 runs closed-loop at {@code window}
+ * @param arrival       open-loop inter-arrival times: {@code poisson} or {@code uniform}
+ * @param window        closed-loop traps in flight per stream
+ * @param deviceSkew    Zipf exponent of device popularity (0 = uniform); likewise {@code oidSkew}
+ * @param stormEvery    start a trap storm this often (zero disables storms)
+ * @param stormRate     traps per second added during a storm, from {@code stormDevices} devices
+ * @param invalidRatio  share of traps sent without a deviceId (VALIDATION_ERROR)
+ * @param internalRatio share of traps hitting the simulated database failure (INTERNAL)
+ * @param badTimestampRatio share of traps with an unparseable timestamp
+ * @param compression   request encoding: {@code identity}, {@code gzip}, {@code zstd} or {@code lz4}
+ */
+record LoadOptions(String target, boolean embedded, String api, int channels, int streamsPerChannel,
+                   double rate, String arrival, int window, int batchSize,
+                   Duration duration, Duration warmup, Duration reportInterval,
+                   int devices, double deviceSkew, int oids, double oidSkew,
+                   Duration stormEvery, Duration stormDuration, double stormRate, int stormDevices,
+                   double invalidRatio, double internalRatio, double badTimestampRatio,
+                   String histogramLog, String compression) {
+
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        Options o = new Options(values);
+        LoadOptions options = new LoadOptions(
+                o.string("target", "localhost:9095"),
+                o.bool("embedded", false),
+                o.string("api", "stream"),
+                o.integer("channels", 2),
+                o.integer("streams-per-channel", 4),
+                o.decimal("rate", 0),
+                o.string("arrival", "poisson"),
+                o.integer("window", 256),
+                o.integer("batch-size", 100),
+                o.duration("duration", "60s"),
+                o.duration("warmup", "10s"),
+                o.duration("report-interval", "5s"),
+                o.integer("devices", 10_000),
+                o.decimal("device-skew", 1.1),
+                o.integer("oids", 200),
+                o.decimal("oid-skew", 1.0),
+                o.duration("storm-every", "0s"),
+                o.duration("storm-duration", "5s"),
+                o.decimal("storm-rate", 5_000),
+                o.integer("storm-devices", 3),
+                o.decimal("invalid-ratio", 0),
+                o.decimal("internal-ratio", 0),
+                o.decimal("bad-timestamp-ratio", 0),
+                o.string("histogram-log", null),
+                o.string("compression", "identity"));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        if (!options.api.equals("stream") && !options.api.equals("batch")) {
+            throw new IllegalArgumentException("--api must be stream or batch");
+        }
+        if (!options.arrival.equals("poisson") && !options.arrival.equals("uniform")) {
+            throw new IllegalArgumentException("--arrival must be poisson or uniform");
+        }
+        if (!List.of("identity", "gzip", "zstd", "lz4").contains(options.compression)) {
+            throw new IllegalArgumentException("--compression must be identity, gzip, zstd or lz4");
+        }
+        return options;
+    }
+
+    int streams() {
+        return channels * streamsPerChannel;
+    }
+
+    boolean openLoop() {
+        return rate > 0;
+    }
+
+    // Consumes options as they are read, so leftovers are reported as unknown
+    private record Options(Map<String, String> values) {
+        String string(String name, String defaultValue) {
+            String value = values.remove(name);
+            return value != null ? value : defaultValue;
+        }
+
+        boolean bool(String name, boolean defaultValue) {
+            String value = values.remove(name);
+            return value != null ? Boolean.parseBoolean(value) : defaultValue;
+        }
+
+        int integer(String name, int defaultValue) {
+            String value = values.remove(name);
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        }
+
+        double decimal(String name, double defaultValue) {
+            String value = values.remove(name);
+            return value != null ? Double.parseDouble(value) : defaultValue;
+        }
+
+        // 500ms, 30s, 5m
+        Duration duration(String name, String defaultValue) {
+            String value = string(name, defaultValue).trim();
+            if (value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            }
+            long amount = Long.parseLong(value.substring(0, value.length() - 1));
+            return switch (value.charAt(value.length() - 1)) {
+                case 's' -> Duration.ofSeconds(amount);
+                case 'm' -> Duration.ofMinutes(amount);
+                case 'h' -> Duration.ofHours(amount);
+                default -> throw new IllegalArgumentException("Bad duration for --" + name + ": " + value);
+            };
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.vinodh.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and send-to-ack latency shared by all streams.
+ * Latency is recorded in microseconds from the time a trap was due to be sent, so a stalled server
+ * shows up in the percentiles instead of silently lowering the offered rate.
+ */
+final class LoadStats {
+
+    final LongAdder sent = new LongAdder();
+    final LongAdder acked = new LongAdder();
+    final LongAdder validationErrors = new LongAdder();
+    final LongAdder internalErrors = new LongAdder();
+    // Traps refused with RESOURCE_EXHAUSTED by the server's concurrency limit
+    final LongAdder rejected = new LongAdder();
+    // Traps still in flight when their stream was reset
+    final LongAdder lost = new LongAdder();
+    // Responses that could not be paired with a send
+    final LongAdder unmatched = new LongAdder();
+    final LongAdder streamResets = new LongAdder();
+
+    private final Recorder latency = new Recorder(3);
+
+    void recordLatency(long intendedNanos, long count) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos));
+        latency.recordValueWithCount(micros, count);
+    }
+
+    /** Latency recorded since the previous call. */
+    Histogram interval(Histogram recycle) {
+        return latency.getIntervalHistogram(recycle);
+    }
+
+    Snapshot snapshot() {
+        return new Snapshot(sent.sum(), acked.sum(), validationErrors.sum(), internalErrors.sum(), rejected.sum(),
+                lost.sum(), unmatched.sum(), streamResets.sum());
+    }
+
+    record Snapshot(long sent, long acked, long validationErrors, long internalErrors, long rejected,
+                    long lost, long unmatched, long streamResets) {
+
+        Snapshot minus(Snapshot previous) {
+            return new Snapshot(sent - previous.sent, acked - previous.acked,
+                    validationErrors - previous.validationErrors, internalErrors - previous.internalErrors,
+                    rejected - previous.rejected,
+                    lost - previous.lost, unmatched - previous.unmatched, streamResets - previous.streamResets);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.vinodh.loadgen;
+
+import com.vinodh.NotificationServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One gRPC stream driven until the deadline, reopened whenever the server resets it
+ * (after the server's retry pushback when it refused the stream under load).
+ * In open-loop mode sends follow a schedule of intended times at this stream's share of the rate;
+ * in closed-loop mode a send waits for a free slot in the window instead.
+ */
+abstract class LoadStream implements Runnable {
+
+    private static final Metadata.Key<String> RETRY_PUSHBACK = Metadata.Key.of("grpc-retry-pushback-ms", Metadata.ASCII_STRING_MARSHALLER);
+
+    protected final LoadOptions options;
+    protected final TrafficModel model;
+    protected final LoadStats stats;
+    protected final ManagedChannel channel;
+    private final long deadlineNanos;
+    private long nextIntendedNanos;
+    // Retry delay the server asked for when it refused the last stream
+    private volatile long pushbackMillis;
+
+    LoadStream(LoadOptions options, TrafficModel model, LoadStats stats, ManagedChannel channel, long deadlineNanos) {
+        this.options = options;
+        this.model = model;
+        this.stats = stats;
+        this.channel = channel;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public final void run() {
+        nextIntendedNanos = System.nanoTime();
+        while (!expired()) {
+            runStream();
+            long wait = pushbackMillis;
+            if (wait > 0) {
+                pushbackMillis = 0;
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(wait));
+            }
+        }
+    }
+
+    /** Stub for a new call, compressing requests with {@code --compression}. */
+    protected NotificationServiceGrpc.NotificationServiceStub stub() {
+        NotificationServiceGrpc.NotificationServiceStub stub = NotificationServiceGrpc.newStub(channel);
+        return options.compression().equals("identity") ? stub : stub.withCompression(options.compression());
+    }
+
+    /** Honours the {@code grpc-retry-pushback-ms} trailer of a stream refused with RESOURCE_EXHAUSTED before reopening. */
+    protected void recordPushback(Throwable t) {
+        Status status = Status.fromThrowable(t);
+        Metadata trailers = Status.trailersFromThrowable(t);
+        if (status.getCode() != Status.Code.RESOURCE_EXHAUSTED || trailers == null) {
+            return;
+        }
+        String pushback = trailers.get(RETRY_PUSHBACK);
+        if (pushback != null) {
+            try {
+                pushbackMillis = Long.parseLong(pushback);
+            } catch (NumberFormatException ignored) {
+                // Malformed hint; reopen right away
+            }
+        }
+    }
+
+    /** Opens a stream and sends until the deadline or until the server resets it. */
+    protected abstract void runStream();
+
+    protected boolean expired() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Waits until the next send of {@code traps} traps is due and returns the time it was due.
+     * Open-loop only; the schedule is not reset when the stream falls behind.
+     */
+    protected long awaitNextSend(int traps) {
+        long intended = nextIntendedNanos;
+        double perStreamRate = model.rate(intended) / options.streams();
+        double gapSeconds = traps / perStreamRate;
+        if (options.arrival().equals("poisson")) {
+            gapSeconds *= -Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        }
+        nextIntendedNanos = intended + (long) (gapSeconds * 1e9);
+        for (long wait; (wait = intended - System.nanoTime()) > 0; ) {
+            LockSupport.parkNanos(wait);
+        }
+        return intended;
+    }
+
+    /** Closed-loop only: waits for a free slot in the window, giving up when the stream breaks or time is up. */
+    protected boolean acquire(Semaphore window, int permits, StreamHealth health) throws InterruptedException {
+        while (!window.tryAcquire(permits, 10, TimeUnit.MILLISECONDS)) {
+            if (health.broken || expired()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Half-closes the stream and waits for the server to answer what is still in flight. */
+    protected void drain(ClientCallStreamObserver<?> requests, StreamHealth health) throws InterruptedException {
+        if (!health.broken) {
+            requests.onCompleted();
+        }
+        if (!health.done.await(30, TimeUnit.SECONDS)) {
+            requests.cancel("load generator stopped", null);
+        }
+    }
+
+    /** Parks briefly while the transport has no room, so the client does not buffer without bound. */
+    protected boolean awaitReady(ClientCallStreamObserver<?> requests, StreamHealth health) {
+        while (!requests.isReady()) {
+            if (health.broken || expired()) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        return !health.broken;
+    }
+
+    /** Completion state of one stream attempt, shared with its response observer. */
+    protected static final class StreamHealth {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile boolean broken;
+    }
+}
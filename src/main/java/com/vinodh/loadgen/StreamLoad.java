@@ -0,0 +1,149 @@
+package com.vinodh.loadgen;
+
+import com.vinodh.ProcessStatus;
+import com.vinodh.SNMPNotification;
+import io.grpc.ManagedChannel;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Drives {@code StreamNotifications}. The server answers each trap with a ProcessStatus naming its
+ * device but in completion order, so send times are queued per device and each response takes the
+ * oldest send of its device. That pairing is exact when the server keeps per-device order
+ * ({@code traps.ingest.executor=device-lanes}) and close otherwise.
+ * Failed traps are answered in-band with errorCode INTERNAL; if the stream itself breaks, what was still in
+ * flight is counted as lost and the stream reopened.
+ */
+final class StreamLoad extends LoadStream {
+
+    private static final String PROCESSED = "Processed: ";
+    private static final String REJECTED = "Rejected: ";
+    private static final String FAILED = "Failed: ";
+    private static final String INTERNAL = "INTERNAL";
+    private static final String RESOURCE_EXHAUSTED = "RESOURCE_EXHAUSTED";
+    private static final String DEVICE_REQUIRED = "Device ID is required";
+    private static final String BAD_TIMESTAMP = "Invalid timestamp: '" + TrafficModel.BAD_TIMESTAMP_PREFIX;
+
+    private long sequence;
+
+    StreamLoad(LoadOptions options, TrafficModel model, LoadStats stats, ManagedChannel channel, long deadlineNanos) {
+        super(options, model, stats, channel, deadlineNanos);
+    }
+
+    @Override
+    protected void runStream() {
+        StreamHealth health = new StreamHealth();
+        Semaphore window = new Semaphore(options.window());
+        // Send times per deviceId; guarded by itself
+        Map<String, ArrayDeque<Long>> inFlight = new HashMap<>();
+
+        StreamObserver<ProcessStatus> responses = new StreamObserver<>() {
+            @Override
+            public void onNext(ProcessStatus status) {
+                String device = deviceOf(status);
+                Long sentAt = null;
+                if (device != null) {
+                    synchronized (inFlight) {
+                        ArrayDeque<Long> sends = inFlight.get(device);
+                        if (sends != null) {
+                            sentAt = sends.poll();
+                            if (sends.isEmpty()) {
+                                inFlight.remove(device);
+                            }
+                        }
+                    }
+                }
+                if (sentAt == null) {
+                    stats.unmatched.increment();
+                } else {
+                    stats.recordLatency(sentAt, 1);
+                }
+                if (status.getSuccess()) {
+                    stats.acked.increment();
+                } else if (RESOURCE_EXHAUSTED.equals(status.getErrorCode())) {
+                    stats.rejected.increment();
+                } else if (INTERNAL.equals(status.getErrorCode())) {
+                    stats.internalErrors.increment();
+                } else {
+                    stats.validationErrors.increment();
+                }
+                if (!options.openLoop()) {
+                    window.release();
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                health.broken = true;
+                recordPushback(t);
+                long remaining;
+                synchronized (inFlight) {
+                    remaining = inFlight.values().stream().mapToLong(ArrayDeque::size).sum();
+                    inFlight.clear();
+                }
+                stats.lost.add(remaining);
+                stats.streamResets.increment();
+                health.done.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                health.done.countDown();
+            }
+        };
+
+        ClientCallStreamObserver<SNMPNotification> requests = (ClientCallStreamObserver<SNMPNotification>)
+                stub().streamNotifications(responses);
+        try {
+            while (!expired() && !health.broken) {
+                long intended;
+                if (options.openLoop()) {
+                    intended = awaitNextSend(1);
+                } else if (acquire(window, 1, health)) {
+                    intended = System.nanoTime();
+                } else {
+                    break;
+                }
+                if (!awaitReady(requests, health)) {
+                    break;
+                }
+                SNMPNotification notification = model.next(intended, sequence++);
+                synchronized (inFlight) {
+                    inFlight.computeIfAbsent(notification.getDeviceId(), device -> new ArrayDeque<>()).add(intended);
+                }
+                requests.onNext(notification);
+                stats.sent.increment();
+            }
+            drain(requests, health);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            requests.cancel("load generator interrupted", e);
+        }
+    }
+
+    // Device a response belongs to, or null if it cannot be told
+    private static String deviceOf(ProcessStatus status) {
+        String message = status.getMessage();
+        if (status.getSuccess() && message.startsWith(PROCESSED)) {
+            return message.substring(PROCESSED.length());
+        }
+        if (RESOURCE_EXHAUSTED.equals(status.getErrorCode()) && message.startsWith(REJECTED)) {
+            return message.substring(REJECTED.length());
+        }
+        if (INTERNAL.equals(status.getErrorCode()) && message.startsWith(FAILED)) {
+            return message.substring(FAILED.length());
+        }
+        if (message.equals(DEVICE_REQUIRED)) {
+            return "";
+        }
+        if (message.startsWith(BAD_TIMESTAMP) && message.endsWith("'")) {
+            return message.substring(BAD_TIMESTAMP.length(), message.length() - 1);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,107 @@
+package com.vinodh.loadgen;
+
+import com.vinodh.SNMPNotification;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * What the generated traps look like: Zipf-distributed devices and OIDs, periodic storms of identical
+ * traps from a few devices, and injected errors.
+ */
+final class TrafficModel {
+
+    // The server fails these on purpose (see NotificationGrpcService)
+    static final String SIMULATED_FAILURE_OID = "1.3.6.1.2.1.22";
+    // Bad timestamps carry the deviceId so the validation error can be matched to its device
+    static final String BAD_TIMESTAMP_PREFIX = "bad-";
+
+    private static final String STORM_OID = "1.3.6.1.6.3.1.1.5.3"; // linkDown
+
+    private final LoadOptions options;
+    private final long startNanos;
+    private final String[] devices;
+    private final String[] oids;
+    private final double[] deviceCdf;
+    private final double[] oidCdf;
+
+    TrafficModel(LoadOptions options, long startNanos) {
+        this.options = options;
+        this.startNanos = startNanos;
+        this.devices = new String[options.devices()];
+        for (int i = 0; i < devices.length; i++) {
+            devices[i] = String.format("device-%05d", i);
+        }
+        this.oids = new String[options.oids()];
+        for (int i = 0; i < oids.length; i++) {
+            oids[i] = "1.3.6.1.4.1.8072.2.3." + i;
+        }
+        this.deviceCdf = zipfCdf(devices.length, options.deviceSkew());
+        this.oidCdf = zipfCdf(oids.length, options.oidSkew());
+    }
+
+    boolean stormActive(long now) {
+        long every = options.stormEvery().toNanos();
+        if (every <= 0) {
+            return false;
+        }
+        long elapsed = now - startNanos;
+        return elapsed >= every && elapsed % every < options.stormDuration().toNanos();
+    }
+
+    /** Target traps per second over all streams at {@code now}, storms included. */
+    double rate(long now) {
+        return options.rate() + (stormActive(now) ? options.stormRate() : 0);
+    }
+
+    SNMPNotification next(long now, long sequence) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String device;
+        String oid;
+        String value;
+        if (stormActive(now) && random.nextDouble() * rate(now) < options.stormRate()) {
+            // Identical traps so the server's dedup folds them
+            device = devices[random.nextInt(Math.min(options.stormDevices(), devices.length))];
+            oid = STORM_OID;
+            value = "linkDown";
+        } else {
+            device = devices[sample(deviceCdf, random)];
+            oid = oids[sample(oidCdf, random)];
+            value = Long.toString(sequence);
+        }
+        String timestamp = Long.toString(System.currentTimeMillis());
+
+        double fault = random.nextDouble();
+        if (fault < options.invalidRatio()) {
+            device = "";
+        } else if ((fault -= options.invalidRatio()) < options.internalRatio()) {
+            oid = SIMULATED_FAILURE_OID;
+        } else if (fault - options.internalRatio() < options.badTimestampRatio()) {
+            timestamp = BAD_TIMESTAMP_PREFIX + device;
+        }
+        return SNMPNotification.newBuilder()
+                .setDeviceId(device)
+                .setOid(oid)
+                .setValue(value)
+                .setTimestamp(timestamp)
+                .build();
+    }
+
+    private static double[] zipfCdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, ThreadLocalRandom random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+}
@@ -0,0 +1,159 @@
+package com.vinodh.loadgen;
+
+import com.vinodh.TrapsServerApplication;
+import com.vinodh.compression.Lz4Codec;
+import com.vinodh.compression.ZstdCodec;
+import io.grpc.Codec;
+import io.grpc.CompressorRegistry;
+import io.grpc.DecompressorRegistry;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator for capacity planning of the trap ingest path.
+ * <p>
+ * Opens {@code --channels} connections with {@code --streams-per-channel} streams each and sends
+ * Zipf-distributed traps, periodic storms and injected errors. With {@code --rate} the load is
+ * open-loop (Poisson or uniform arrivals, latency measured from the intended send time); without it
+ * each stream keeps {@code --window} traps in flight. Every {@code --report-interval} it prints
+ * throughput and send-to-ack latency percentiles, then a summary over the run after {@code --warmup}.
+ * <pre>
+ * java -cp target/classes:... com.vinodh.loadgen.TrapLoadGenerator \
+ *     --embedded --rate=20000 --duration=2m --storm-every=30s --invalid-ratio=0.01
+ * </pre>
+ * {@code --embedded} starts the server in this JVM with the {@code loadtest} profile, which swaps
+ * Mongo for the in-process stand-in so the ingest path can be sized without a database.
+ */
+public final class TrapLoadGenerator {
+
+    // Same codecs as the server, so --compression can exercise each of them
+    private static final CompressorRegistry COMPRESSORS = CompressorRegistry.newEmptyInstance();
+    private static final DecompressorRegistry DECOMPRESSORS = DecompressorRegistry.getDefaultInstance()
+            .with(new ZstdCodec(3), true)
+            .with(new Lz4Codec(), true);
+
+    static {
+        COMPRESSORS.register(new Codec.Gzip());
+        COMPRESSORS.register(new ZstdCodec(3));
+        COMPRESSORS.register(new Lz4Codec());
+    }
+
+    private TrapLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        ConfigurableApplicationContext server = options.embedded()
+                ? new SpringApplicationBuilder(TrapsServerApplication.class).profiles("loadtest").run()
+                : null;
+        try {
+            run(options);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static void run(LoadOptions options) throws InterruptedException, FileNotFoundException {
+        System.out.printf("🚀 %s api, %d channels x %d streams, %s, %s + %s warmup against %s%n",
+                options.api(), options.channels(), options.streamsPerChannel(),
+                options.openLoop() ? options.rate() + " traps/s " + options.arrival() : "closed loop, window " + options.window(),
+                options.duration(), options.warmup(), options.target());
+
+        long start = System.nanoTime();
+        long warmupEnd = start + options.warmup().toNanos();
+        long deadline = warmupEnd + options.duration().toNanos();
+        TrafficModel model = new TrafficModel(options, start);
+        LoadStats stats = new LoadStats();
+
+        List<ManagedChannel> channels = new ArrayList<>();
+        List<Thread> streams = new ArrayList<>();
+        for (int c = 0; c < options.channels(); c++) {
+            // Separate channels are separate HTTP/2 connections
+            ManagedChannel channel = ManagedChannelBuilder.forTarget(options.target()).usePlaintext()
+                    .compressorRegistry(COMPRESSORS)
+                    .decompressorRegistry(DECOMPRESSORS)
+                    .build();
+            channels.add(channel);
+            for (int s = 0; s < options.streamsPerChannel(); s++) {
+                LoadStream stream = options.api().equals("batch")
+                        ? new BatchLoad(options, model, stats, channel, deadline)
+                        : new StreamLoad(options, model, stats, channel, deadline);
+                streams.add(Thread.ofVirtual().name("load-" + c + "-" + s).start(stream));
+            }
+        }
+
+        Histogram total = new Histogram(3);
+        Histogram interval = null;
+        HistogramLogWriter histogramLog = null;
+        if (options.histogramLog() != null) {
+            histogramLog = new HistogramLogWriter(new PrintStream(options.histogramLog()));
+            histogramLog.outputLogFormatVersion();
+            histogramLog.outputStartTime(System.currentTimeMillis());
+            histogramLog.outputLegend();
+        }
+        LoadStats.Snapshot previous = stats.snapshot();
+        LoadStats.Snapshot atWarmupEnd = null;
+        long reportNanos = options.reportInterval().toNanos();
+        long nextReport = start + reportNanos;
+        boolean running = true;
+        while (running) {
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, nextReport - System.nanoTime()));
+            running = streams.stream().anyMatch(Thread::isAlive);
+            long now = System.nanoTime();
+            boolean warmingUp = now < warmupEnd;
+
+            interval = stats.interval(interval);
+            LoadStats.Snapshot current = stats.snapshot();
+            print(warmingUp ? "warmup" : model.stormActive(now) ? "storm " : "      ",
+                    (now - start) / 1e9, current.minus(previous), reportNanos / 1e9, interval);
+            if (!warmingUp) {
+                if (atWarmupEnd == null) {
+                    atWarmupEnd = previous;
+                }
+                total.add(interval);
+                if (histogramLog != null) {
+                    histogramLog.outputIntervalHistogram(interval);
+                }
+            }
+            previous = current;
+            nextReport += reportNanos;
+        }
+
+        channels.forEach(ManagedChannel::shutdown);
+        for (ManagedChannel channel : channels) {
+            channel.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        if (histogramLog != null) {
+            histogramLog.close();
+        }
+        LoadStats.Snapshot measured = stats.snapshot().minus(atWarmupEnd != null ? atWarmupEnd : previous);
+        System.out.println("📊 Summary after warmup");
+        print("total ", (System.nanoTime() - warmupEnd) / 1e9, measured,
+                Math.max(1e-9, (System.nanoTime() - warmupEnd) / 1e9), total);
+    }
+
+    private static void print(String phase, double elapsedSeconds, LoadStats.Snapshot counts,
+                              double seconds, Histogram latency) {
+        System.out.printf("%s %7.1fs  sent %9.0f/s  acked %9.0f/s  | validation %d  internal %d  rejected %d  lost %d  unmatched %d  resets %d"
+                        + "  | latency ms p50 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                phase, elapsedSeconds, counts.sent() / seconds, counts.acked() / seconds,
+                counts.validationErrors(), counts.internalErrors(), counts.rejected(), counts.lost(), counts.unmatched(), counts.streamResets(),
+                millis(latency, 50), millis(latency, 99), millis(latency, 99.9), latency.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram latency, double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
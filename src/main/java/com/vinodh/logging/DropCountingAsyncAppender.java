@@ -0,0 +1,142 @@
+package com.vinodh.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous appender that never blocks the logging thread: events go through a bounded queue to a
+ * worker thread, and an event the queue refuses is dropped and counted. Counting from the result of the
+ * non-blocking offer itself keeps the count exact under contention, which logback's {@code AsyncAppender}
+ * does not expose. The count is exported as {@code snmp_log_events_dropped} by {@link HotPathLogger}.
+ * MDC (trace_id/span_id) is captured on the calling thread before queueing.
+ */
+public class DropCountingAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    private static final LongAdder DROPPED = new LongAdder();
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private int queueSize = 256;
+    private int maxFlushTime = 1000;
+    private BlockingQueue<ILoggingEvent> queue;
+    private Thread worker;
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /** Milliseconds {@link #stop()} waits for queued events to be written. */
+    public void setMaxFlushTime(int maxFlushTime) {
+        this.maxFlushTime = maxFlushTime;
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (queueSize < 1) {
+            addError("Invalid queue size [" + queueSize + "]");
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No attached appenders found.");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueSize);
+        worker = Thread.ofPlatform().name("AsyncAppender-Worker-" + getName()).daemon(true).unstarted(this::drain);
+        super.start();
+        worker.start();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (!queue.offer(event)) {
+            DROPPED.increment();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (isStarted()) {
+                appenders.appendLoopOnAppenders(queue.take());
+            }
+        } catch (InterruptedException e) {
+            // Interrupted by stop(); the flag is left clear so the flush below can do I/O
+        }
+        for (ILoggingEvent event; (event = queue.poll()) != null; ) {
+            appenders.appendLoopOnAppenders(event);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        worker.interrupt();
+        try {
+            worker.join(maxFlushTime);
+            if (worker.isAlive()) {
+                addWarn("Max flush time of " + maxFlushTime + " ms exceeded, " + queue.size() + " queued events discarded");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    /** Events dropped by all instances since startup. */
+    public static long dropped() {
+        return DROPPED.sum();
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
@@ -0,0 +1,186 @@
+package com.vinodh.logging;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logging for per-notification events on the ingest path.
+ * With {@code traps.logging.hot-path.mode: rate-limited} each (level, key) pair, usually a deviceId,
+ * may log {@code max-per-interval} events per interval; further events are counted, not formatted,
+ * and reported in one summary line when the interval ends. {@code all} logs everything, {@code off}
+ * drops hot-path events. Lines are written by the caller's logger, so they keep its name and MDC.
+ */
+@Component
+public class HotPathLogger {
+
+    private static final Logger log = LoggerFactory.getLogger(HotPathLogger.class);
+
+    // Shared window once max-keys distinct keys are tracked, so the map stays bounded
+    private static final String OVERFLOW_KEY = "*";
+
+    private enum Mode { ALL, RATE_LIMITED, OFF }
+
+    private static final class Window {
+        final Logger logger;
+        long start;
+        int emitted;
+        int suppressed;
+
+        Window(Logger logger, long start) {
+            this.logger = logger;
+            this.start = start;
+        }
+    }
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.logging.hot-path.mode:rate-limited}")
+    private String modeName;
+
+    @Value("${traps.logging.hot-path.max-per-interval:5}")
+    private int maxPerInterval;
+
+    @Value("${traps.logging.hot-path.interval-ms:10000}")
+    private long intervalMs;
+
+    @Value("${traps.logging.hot-path.max-keys:10000}")
+    private int maxKeys;
+
+    private Mode mode;
+    private final Map<Level, Map<String, Window>> windows = new EnumMap<>(Level.class);
+    private final LongAdder suppressedTotal = new LongAdder();
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    void init() {
+        mode = Mode.valueOf(modeName.toUpperCase().replace('-', '_'));
+        for (Level level : Level.values()) {
+            windows.put(level, new ConcurrentHashMap<>());
+        }
+        FunctionCounter.builder("snmp_log_events_suppressed", suppressedTotal, LongAdder::sum)
+                .description("Hot-path log events suppressed by rate limiting")
+                .register(registry);
+        FunctionCounter.builder("snmp_log_events_dropped", this, logger -> DropCountingAsyncAppender.dropped())
+                .description("Log events dropped because an async appender queue was full")
+                .register(registry);
+
+        if (mode == Mode.RATE_LIMITED) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("hot-log-sweeper").daemon(true).factory());
+            sweeper.scheduleWithFixedDelay(this::sweep, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+        log.info("🔇 Hot-path logging mode={}, maxPerInterval={}, intervalMs={}", mode, maxPerInterval, intervalMs);
+    }
+
+    public void info(Logger logger, String key, String format, Object... args) {
+        log(logger, Level.INFO, key, format, args);
+    }
+
+    public void warn(Logger logger, String key, String format, Object... args) {
+        log(logger, Level.WARN, key, format, args);
+    }
+
+    public void error(Logger logger, String key, String format, Object... args) {
+        log(logger, Level.ERROR, key, format, args);
+    }
+
+    private void log(Logger logger, Level level, String key, String format, Object[] args) {
+        if (mode == Mode.OFF || !logger.isEnabledForLevel(level)) {
+            return;
+        }
+        if (mode == Mode.RATE_LIMITED && !admit(logger, level, key == null ? OVERFLOW_KEY : key)) {
+            return;
+        }
+        write(logger, level, format, args);
+    }
+
+    private static void write(Logger logger, Level level, String format, Object... args) {
+        switch (level) {
+            case ERROR -> logger.error(format, args);
+            case WARN -> logger.warn(format, args);
+            case INFO -> logger.info(format, args);
+            case DEBUG -> logger.debug(format, args);
+            case TRACE -> logger.trace(format, args);
+        }
+    }
+
+    private boolean admit(Logger logger, Level level, String key) {
+        Map<String, Window> byKey = windows.get(level);
+        Window window = byKey.get(key);
+        if (window == null) {
+            String tracked = byKey.size() < maxKeys ? key : OVERFLOW_KEY;
+            window = byKey.computeIfAbsent(tracked, k -> new Window(logger, System.currentTimeMillis()));
+        }
+        long now = System.currentTimeMillis();
+        int suppressed;
+        synchronized (window) {
+            if (now - window.start < intervalMs) {
+                if (window.emitted < maxPerInterval) {
+                    window.emitted++;
+                    return true;
+                }
+                window.suppressed++;
+                suppressedTotal.increment();
+                return false;
+            }
+            suppressed = window.suppressed;
+            window.start = now;
+            window.emitted = 1;
+            window.suppressed = 0;
+        }
+        summarize(window.logger, level, key, suppressed);
+        return true;
+    }
+
+    // Reports windows that ended with suppressed events and forgets keys idle for a full interval
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        windows.forEach((level, byKey) -> byKey.entrySet().removeIf(entry -> {
+            Window window = entry.getValue();
+            int suppressed;
+            boolean idle;
+            synchronized (window) {
+                if (now - window.start < intervalMs) {
+                    return false;
+                }
+                suppressed = window.suppressed;
+                idle = window.emitted == 0 && suppressed == 0;
+                window.start = now;
+                window.emitted = 0;
+                window.suppressed = 0;
+            }
+            summarize(window.logger, level, entry.getKey(), suppressed);
+            return idle;
+        }));
+    }
+
+    private void summarize(Logger logger, Level level, String key, int suppressed) {
+        if (suppressed > 0) {
+            write(logger, level, "🔇 Suppressed {} {} log events for key={} in the last {} ms",
+                    suppressed, level, key, intervalMs);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) {
+            sweeper.shutdown();
+        }
+    }
+}
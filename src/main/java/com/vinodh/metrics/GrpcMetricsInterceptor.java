@@ -6,19 +6,36 @@ import io.grpc.Metadata;
 import io.grpc.ServerCall;
 import io.grpc.ServerCallHandler;
 import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Component;
-import com.google.protobuf.Message;
-import java.nio.charset.StandardCharsets;
+import com.google.protobuf.MessageLite;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Message sizes and per-stream telemetry for every gRPC call.
+ * Meters are resolved once per method and per call; the per-message path only reads the clock and
+ * records into existing meters, so nothing is allocated per message. Sizes come from
+ * {@link MessageLite#getSerializedSize()}, which protobuf memoizes and reuses when it serializes.
+ */
 @Component
 public class GrpcMetricsInterceptor implements ServerInterceptor {
 
+    private final MeterRegistry registry;
     private final DistributionSummary requestSize;
     private final DistributionSummary responseSize;
+    private final ConcurrentHashMap<String, MethodMeters> methods = new ConcurrentHashMap<>();
 
     public GrpcMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
         this.requestSize = DistributionSummary.builder("grpc_server_request_size_bytes")
                 .baseUnit("bytes")
                 .description("Size of incoming gRPC request messages")
@@ -40,7 +57,10 @@ public class GrpcMetricsInterceptor implements ServerInterceptor {
             Metadata headers,
             ServerCallHandler<ReqT, RespT> next) {
 
-        // Wrap ServerCall to intercept outgoing responses
+        MethodMeters meters = methods.computeIfAbsent(call.getMethodDescriptor().getFullMethodName(), MethodMeters::new);
+        StreamState stream = new StreamState(meters);
+
+        // Wrap ServerCall to intercept outgoing responses and the final status
         ServerCall<ReqT, RespT> monitoringCall = new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
             @Override
             public void sendMessage(RespT message) {
@@ -50,12 +70,18 @@ public class GrpcMetricsInterceptor implements ServerInterceptor {
                 }
                 super.sendMessage(message);
             }
+
+            @Override
+            public void close(Status status, Metadata trailers) {
+                stream.end(status.getCode());
+                super.close(status, trailers);
+            }
         };
 
         // Start the call with wrapped ServerCall
         ServerCall.Listener<ReqT> listener = next.startCall(monitoringCall, headers);
 
-        // Wrap the listener to intercept incoming requests
+        // Wrap the listener to intercept incoming requests; gRPC delivers these callbacks one at a time
         return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
             @Override
             public void onMessage(ReqT message) {
@@ -63,25 +89,111 @@ public class GrpcMetricsInterceptor implements ServerInterceptor {
                 if (size > 0) {
                     requestSize.record(size);
                 }
+                stream.onMessage();
                 super.onMessage(message);
             }
+
+            @Override
+            public void onCancel() {
+                // Client went away before the server closed the call
+                stream.end(Status.Code.CANCELLED);
+                super.onCancel();
+            }
         };
     }
 
-    // Helper to compute message byte length safely
-    private int getMessageSize(Object message) {
-        if (message == null) {
-            return 0;
+    // Serialized size without serializing; non-protobuf messages are not measured
+    private static int getMessageSize(Object message) {
+        return message instanceof MessageLite protobuf ? protobuf.getSerializedSize() : 0;
+    }
+
+    /** Timing of one call; created at call start so the message path allocates nothing. */
+    private static final class StreamState {
+        private final MethodMeters meters;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean ended = new AtomicBoolean();
+        private long lastMessageNanos;
+        // Written only by listener callbacks; volatile so close() on another thread sees the final count
+        private volatile long messages;
+
+        StreamState(MethodMeters meters) {
+            this.meters = meters;
+            meters.active.incrementAndGet();
         }
-        // If it's a protobuf Message, use toByteArray for accurate size
-        if (message instanceof Message) {
-            return ((Message) message).toByteArray().length;
+
+        void onMessage() {
+            long now = System.nanoTime();
+            if (messages == 0) {
+                meters.timeToFirstMessage.record(now - startNanos, TimeUnit.NANOSECONDS);
+            } else {
+                meters.messageGap.record(now - lastMessageNanos, TimeUnit.NANOSECONDS);
+            }
+            lastMessageNanos = now;
+            messages++;
+        }
+
+        // Called from close() or onCancel(), whichever comes first
+        void end(Status.Code code) {
+            if (!ended.compareAndSet(false, true)) {
+                return;
+            }
+            meters.active.decrementAndGet();
+            meters.duration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            meters.messagesPerStream.record(messages);
+            meters.status(code).increment();
         }
-        // Fallback: use UTF-8 representation length
-        try {
-            return message.toString().getBytes(StandardCharsets.UTF_8).length;
-        } catch (Exception e) {
-            return 0;
+    }
+
+    /** Meters of one gRPC method, registered on its first call. */
+    private final class MethodMeters {
+        private final String method;
+        private final AtomicInteger active = new AtomicInteger();
+        private final Timer duration;
+        private final Timer timeToFirstMessage;
+        private final Timer messageGap;
+        private final DistributionSummary messagesPerStream;
+        private final Counter[] statuses = new Counter[Status.Code.values().length];
+
+        MethodMeters(String method) {
+            this.method = method;
+            Gauge.builder("grpc_server_active_streams", active, AtomicInteger::get)
+                    .tag("method", method)
+                    .description("gRPC calls currently open")
+                    .register(registry);
+            duration = Timer.builder("grpc_server_stream_duration")
+                    .tag("method", method)
+                    .description("Lifetime of gRPC calls from start to close or cancel")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            timeToFirstMessage = Timer.builder("grpc_server_stream_first_message")
+                    .tag("method", method)
+                    .description("Time from call start to the first request message")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            messageGap = Timer.builder("grpc_server_stream_message_gap")
+                    .tag("method", method)
+                    .description("Time between consecutive request messages of a call")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            messagesPerStream = DistributionSummary.builder("grpc_server_stream_messages")
+                    .tag("method", method)
+                    .description("Request messages received per gRPC call")
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        Counter status(Status.Code code) {
+            Counter counter = statuses[code.ordinal()];
+            if (counter == null) {
+                // Registration is idempotent, so a racing duplicate resolves to the same counter
+                counter = Counter.builder("grpc_server_stream_status")
+                        .tag("method", method)
+                        .tag("status", code.name())
+                        .description("gRPC calls closed, by status code")
+                        .register(registry);
+                statuses[code.ordinal()] = counter;
+            }
+            return counter;
         }
     }
 }
@@ -0,0 +1,103 @@
+package com.vinodh.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitter sketch (Metwally et al.): tracks at most {@code capacity} keys, and a new key
+ * replaces the one with the smallest count, inheriting that count as its possible over-count.
+ * Counters sit in a min-heap so both increments and replacements are O(log capacity); once full the
+ * sketch allocates nothing. Synchronized per instance; callers stripe instances to spread contention.
+ */
+final class SpaceSaving {
+
+    private static final class Item {
+        String key;
+        long count;
+        long error;
+        int position;
+    }
+
+    private final Item[] heap;
+    private final Map<String, Item> index;
+    private int size;
+
+    SpaceSaving(int capacity) {
+        this.heap = new Item[capacity];
+        this.index = new HashMap<>(capacity * 2);
+    }
+
+    synchronized void add(String key) {
+        Item item = index.get(key);
+        if (item != null) {
+            item.count++;
+            siftDown(item.position);
+            return;
+        }
+        if (size < heap.length) {
+            item = new Item();
+            item.key = key;
+            item.count = 1;
+            item.position = size;
+            heap[size++] = item;
+            index.put(key, item);
+            siftUp(item.position);
+            return;
+        }
+        // Evict the minimum; the newcomer may have been seen up to min times while untracked
+        Item min = heap[0];
+        index.remove(min.key);
+        min.key = key;
+        min.error = min.count;
+        min.count++;
+        index.put(key, min);
+        siftDown(0);
+    }
+
+    /** Adds this sketch's counts into {@code totals} as {@code [count, error]} per key. */
+    synchronized void mergeInto(Map<String, long[]> totals) {
+        for (int i = 0; i < size; i++) {
+            Item item = heap[i];
+            long[] total = totals.computeIfAbsent(item.key, k -> new long[2]);
+            total[0] += item.count;
+            total[1] += item.error;
+        }
+    }
+
+    private void siftUp(int position) {
+        Item item = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent].count <= item.count) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(item, position);
+    }
+
+    private void siftDown(int position) {
+        Item item = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (item.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(item, position);
+    }
+
+    private void place(Item item, int position) {
+        heap[position] = item;
+        item.position = position;
+    }
+}
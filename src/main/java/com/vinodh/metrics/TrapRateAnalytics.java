@@ -0,0 +1,210 @@
+package com.vinodh.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Sliding-window trap rates with heavy-hitter detection per deviceId and per OID.
+ * The window is a ring of time buckets; each bucket counts the total in a {@link LongAdder} and the
+ * per-key counts in striped {@link SpaceSaving} sketches, so memory stays fixed however many devices
+ * send traps. Keys are striped by hash, so every key lives in exactly one sketch per bucket and merging
+ * adds no error. The rates of the top N are published as {@code snmp_trap_rate_top} gauges tagged only with
+ * kind and rank, so the series stay fixed however many keys pass through the top; which device or OID holds
+ * each rank is served by {@code /api/notifications/rates}.
+ */
+@Component
+public class TrapRateAnalytics {
+
+    private static final Logger log = LoggerFactory.getLogger(TrapRateAnalytics.class);
+
+    private static final int STRIPES = 16;
+
+    /** A key among the busiest in the window; {@code maxOvercount} bounds how much {@code count} may exceed the truth. */
+    public record HeavyHitter(String key, long count, long maxOvercount, double perSecond) {}
+
+    public record TrapRates(Instant at, long windowSeconds, double totalPerSecond,
+                            List<HeavyHitter> devices, List<HeavyHitter> oids) {}
+
+    private record Bucket(long epoch, LongAdder total, SpaceSaving[] devices, SpaceSaving[] oids) {}
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.analytics.enabled:true}")
+    private boolean enabled;
+
+    @Value("${traps.analytics.window-seconds:60}")
+    private long windowSeconds;
+
+    @Value("${traps.analytics.buckets:12}")
+    private int buckets;
+
+    @Value("${traps.analytics.sketch-capacity:1024}")
+    private int sketchCapacity;
+
+    @Value("${traps.analytics.top-n:10}")
+    private int topN;
+
+    @Value("${traps.analytics.publish-interval-ms:5000}")
+    private long publishIntervalMs;
+
+    private long bucketMillis;
+    private AtomicReferenceArray<Bucket> ring;
+    private volatile TrapRates latest;
+    private ScheduledExecutorService publisher;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        bucketMillis = Math.max(1, windowSeconds * 1000 / buckets);
+        // One extra slot for the bucket still filling, which is left out of rates until complete
+        ring = new AtomicReferenceArray<>(buckets + 1);
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, newBucket(epoch - ring.length()));
+        }
+        latest = new TrapRates(Instant.now(), windowSeconds, 0, List.of(), List.of());
+
+        Gauge.builder("snmp_trap_rate_total", this, analytics -> analytics.latest.totalPerSecond())
+                .description("Traps per second received over the analytics window")
+                .register(registry);
+        for (int rank = 1; rank <= topN; rank++) {
+            rankGauge("device", rank, TrapRates::devices);
+            rankGauge("oid", rank, TrapRates::oids);
+        }
+
+        publisher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("trap-rate-publisher").daemon(true).factory());
+        publisher.scheduleWithFixedDelay(this::publish, publishIntervalMs, publishIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("📈 Trap rate analytics enabled: window={}s, buckets={}, top={}", windowSeconds, buckets, topN);
+    }
+
+    private void rankGauge(String kind, int rank, Function<TrapRates, List<HeavyHitter>> hitters) {
+        Gauge.builder("snmp_trap_rate_top", this, analytics -> {
+                    List<HeavyHitter> top = hitters.apply(analytics.latest);
+                    return rank <= top.size() ? top.get(rank - 1).perSecond() : 0;
+                })
+                .tags("kind", kind, "rank", String.valueOf(rank))
+                .description("Traps per second of the busiest devices and OIDs, by rank")
+                .register(registry);
+    }
+
+    /** Counts one received trap. */
+    public void record(String deviceId, String oid) {
+        if (!enabled) {
+            return;
+        }
+        Bucket bucket = current(System.currentTimeMillis() / bucketMillis);
+        bucket.total().increment();
+        if (deviceId != null) {
+            bucket.devices()[stripe(deviceId)].add(deviceId);
+        }
+        if (oid != null) {
+            bucket.oids()[stripe(oid)].add(oid);
+        }
+    }
+
+    /** Rates over the last full window with the {@code top} busiest devices and OIDs. */
+    public TrapRates rates(int top) {
+        if (!enabled) {
+            return new TrapRates(Instant.now(), windowSeconds, 0, List.of(), List.of());
+        }
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        long total = 0;
+        Map<String, long[]> devices = new HashMap<>();
+        Map<String, long[]> oids = new HashMap<>();
+        for (long e = epoch - 1; e >= epoch - buckets; e--) {
+            Bucket bucket = ring.get(slot(e));
+            if (bucket.epoch() != e) {
+                continue;
+            }
+            total += bucket.total().sum();
+            for (int i = 0; i < STRIPES; i++) {
+                bucket.devices()[i].mergeInto(devices);
+                bucket.oids()[i].mergeInto(oids);
+            }
+        }
+        double seconds = buckets * bucketMillis / 1000.0;
+        return new TrapRates(Instant.now(), windowSeconds, total / seconds,
+                top(devices, top, seconds), top(oids, top, seconds));
+    }
+
+    private static List<HeavyHitter> top(Map<String, long[]> totals, int n, double seconds) {
+        return totals.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]))
+                .limit(n)
+                .map(e -> new HeavyHitter(e.getKey(), e.getValue()[0], e.getValue()[1], e.getValue()[0] / seconds))
+                .toList();
+    }
+
+    private void publish() {
+        try {
+            latest = rates(topN);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Failed to publish trap rates: {}", e.getMessage());
+        }
+    }
+
+    private Bucket current(long epoch) {
+        int slot = slot(epoch);
+        Bucket bucket = ring.get(slot);
+        while (bucket.epoch() != epoch) {
+            if (bucket.epoch() > epoch) {
+                // A thread that read the clock just before a rollover; count it in the newer bucket
+                return bucket;
+            }
+            Bucket fresh = newBucket(epoch);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+            bucket = ring.get(slot);
+        }
+        return bucket;
+    }
+
+    private Bucket newBucket(long epoch) {
+        int perStripe = Math.max(8, sketchCapacity / STRIPES);
+        SpaceSaving[] devices = new SpaceSaving[STRIPES];
+        SpaceSaving[] oids = new SpaceSaving[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            devices[i] = new SpaceSaving(perStripe);
+            oids[i] = new SpaceSaving(perStripe);
+        }
+        return new Bucket(epoch, new LongAdder(), devices, oids);
+    }
+
+    private int slot(long epoch) {
+        return (int) (epoch % ring.length());
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+    }
+}
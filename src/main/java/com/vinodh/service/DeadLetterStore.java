@@ -0,0 +1,140 @@
+package com.vinodh.service;
+
+import com.vinodh.entity.SNMPNotificationEntity;
+import com.vinodh.logging.HotPathLogger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Bounded store of notifications that could not be written to Mongo, for inspection and replay.
+ * It is kept in memory because it fills up exactly when Mongo is unavailable; once
+ * {@code traps.dead-letter.max-entries} is reached the oldest entry is evicted and counted.
+ */
+@Service
+public class DeadLetterStore {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterStore.class);
+
+    /** A dead-lettered notification as shown by the REST API. */
+    public record DeadLetter(String id, String deviceId, String oid, String value, Instant timestamp,
+                             TrapPriority priority, String error, int attempts, Instant failedAt) {}
+
+    private record Entry(DeadLetter letter, SNMPNotificationEntity entity) {}
+
+    @Autowired
+    private InternDictionary dictionary;
+
+    @Autowired
+    private HotPathLogger hotLog;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.dead-letter.max-entries:10000}")
+    private int maxEntries;
+
+    // Insertion order, oldest first; guarded by itself
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    private Counter added;
+    private Counter evicted;
+
+    @PostConstruct
+    void init() {
+        added = Counter.builder("snmp_dead_letters_added")
+                .description("Notifications moved to the dead-letter store")
+                .register(registry);
+        evicted = Counter.builder("snmp_dead_letters_evicted")
+                .description("Dead letters dropped to make room for newer ones")
+                .register(registry);
+        Gauge.builder("snmp_dead_letter_entries", this, DeadLetterStore::size)
+                .description("Notifications currently held in the dead-letter store")
+                .register(registry);
+    }
+
+    /** Records an entity whose write failed for good after {@code attempts} tries. */
+    public void add(SNMPNotificationEntity entity, Throwable error, int attempts) {
+        // Keep the readable names; take() compacts the entity again before it is replayed
+        dictionary.resolve(entity);
+        DeadLetter letter = new DeadLetter(entity.getId(), entity.getDeviceId(), entity.getOid(), entity.getValue(),
+                entity.getTimestamp(), entity.getPriority(), error.getMessage(), attempts, Instant.now());
+        synchronized (entries) {
+            entries.put(letter.id(), new Entry(letter, entity));
+            if (entries.size() > maxEntries) {
+                Iterator<Entry> oldest = entries.values().iterator();
+                oldest.next();
+                oldest.remove();
+                evicted.increment();
+            }
+        }
+        added.increment();
+        hotLog.warn(log, letter.deviceId(), "☠️ Dead-lettered notification id={} deviceId={} after {} attempts: {}",
+                letter.id(), letter.deviceId(), attempts, letter.error());
+    }
+
+    /** Up to {@code limit} dead letters, oldest first. */
+    public List<DeadLetter> list(int limit) {
+        synchronized (entries) {
+            return entries.values().stream().limit(limit).map(Entry::letter).toList();
+        }
+    }
+
+    public DeadLetter get(String id) {
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            return entry == null ? null : entry.letter();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /** Removes the given dead letters, or up to {@code limit} of the oldest when ids is empty, and returns their entities. */
+    public List<SNMPNotificationEntity> take(Collection<String> ids, int limit) {
+        List<SNMPNotificationEntity> taken = new ArrayList<>();
+        synchronized (entries) {
+            if (ids.isEmpty()) {
+                Iterator<Entry> it = entries.values().iterator();
+                while (it.hasNext() && taken.size() < limit) {
+                    taken.add(it.next().entity());
+                    it.remove();
+                }
+            } else {
+                for (String id : ids) {
+                    Entry entry = entries.remove(id);
+                    if (entry != null) {
+                        taken.add(entry.entity());
+                    }
+                }
+            }
+        }
+        taken.forEach(dictionary::compact);
+        return taken;
+    }
+
+    /** Discards every dead letter; returns how many were dropped. */
+    public int clear() {
+        synchronized (entries) {
+            int count = entries.size();
+            entries.clear();
+            return count;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.vinodh.service;
+
+/**
+ * Fails a write whose entity was moved to the {@link DeadLetterStore}; the cause is the last write error.
+ */
+public class DeadLetteredException extends RuntimeException {
+
+    public DeadLetteredException(int attempts, Throwable cause) {
+        super("Dead-lettered after " + attempts + " attempt(s): " + cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,419 @@
+package com.vinodh.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.vinodh.entity.SNMPNotificationEntity;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent intern dictionary for deviceId and OID values.
+ * Each distinct value is mapped once to a compact integer code and one canonical instance, so the
+ * hot path shares strings instead of keeping a fresh copy per notification. Values are kept exactly as
+ * received; OIDs additionally carry their parsed arcs for subtree queries. With
+ * {@code traps.intern.store-compact} the codes are stored in Mongo instead of the strings, backed by the
+ * {@code snmp_dictionary} collection, and REST reads resolve them back. Codes then come from blocks reserved
+ * ahead of time from a cluster-wide sequence, and new mappings are written in background batches, so
+ * interning a new value never waits for Mongo; the batch writer stores pending mappings before the
+ * notifications that use them. Two instances may give the same value different codes;
+ * every mapping is stored per code, and queries match all codes of a value.
+ */
+@Service
+public class InternDictionary {
+
+    private static final Logger log = LoggerFactory.getLogger(InternDictionary.class);
+
+    static final String COLLECTION = "snmp_dictionary";
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    public enum Kind { DEVICE, OID }
+
+    /** An interned value: its code, the shared string as received and, for OIDs, the parsed arcs (null if not numeric). */
+    public record Entry(int code, String name, int[] arcs) {}
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.intern.store-compact:false}")
+    private boolean storeCompact;
+
+    @Value("${traps.intern.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${traps.intern.code-block-size:256}")
+    private int codeBlockSize;
+
+    @Value("${traps.intern.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    private final Table devices = new Table(Kind.DEVICE);
+    private final Table oids = new Table(Kind.OID);
+
+    // Mappings created since the last flush, oldest first
+    private final ConcurrentLinkedQueue<Document> unflushed = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService writer;
+
+    @PostConstruct
+    void init() {
+        if (storeCompact) {
+            List<Document> stored = mongoTemplate.findAll(Document.class, COLLECTION);
+            for (Document doc : stored) {
+                if (doc.containsKey("name")) {
+                    table(Kind.valueOf(doc.getString("kind"))).load(doc.getInteger("code"), doc.getString("name"));
+                }
+            }
+            writer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("intern-dictionary-writer").daemon(true).factory());
+            writer.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            devices.reserveAhead();
+            oids.reserveAhead();
+            log.info("📖 Intern dictionary loaded: {} devices, {} OIDs, codeBlockSize={}",
+                    devices.byName.size(), oids.byName.size(), codeBlockSize);
+        }
+        Gauge.builder("snmp_intern_entries", devices.byName, Map::size).tag("kind", "device")
+                .description("Distinct values in the intern dictionary")
+                .register(registry);
+        Gauge.builder("snmp_intern_entries", oids.byName, Map::size).tag("kind", "oid")
+                .description("Distinct values in the intern dictionary")
+                .register(registry);
+    }
+
+    public boolean isStoreCompact() {
+        return storeCompact;
+    }
+
+    /** Interned device entry, or null if the dictionary is full. */
+    public Entry device(String deviceId) {
+        return devices.intern(deviceId);
+    }
+
+    /** Interned OID entry, or null if the dictionary is full. */
+    public Entry oid(String oid) {
+        return oids.intern(oid);
+    }
+
+    /**
+     * Every code the device is stored under, including codes other instances gave it, without interning it;
+     * used by queries. Empty if the device has never been seen.
+     */
+    public List<Integer> deviceCodes(String deviceId) {
+        Set<Integer> codes = new LinkedHashSet<>();
+        Entry local = devices.byName.get(deviceId);
+        if (local != null) {
+            codes.add(local.code());
+        }
+        if (storeCompact) {
+            for (Document doc : mongoTemplate.find(Query.query(Criteria.where("kind").is(Kind.DEVICE.name())
+                    .and("name").is(deviceId)), Document.class, COLLECTION)) {
+                codes.add(doc.getInteger("code"));
+            }
+        }
+        return List.copyOf(codes);
+    }
+
+    /** Codes of all known OIDs equal to or below the given subtree, including codes allocated by other instances. */
+    public List<Integer> oidCodesUnder(int[] prefix) {
+        Set<Integer> codes = new LinkedHashSet<>();
+        for (Entry entry : oids.byCode) {
+            if (entry != null && entry.arcs() != null && entry.arcs().length >= prefix.length
+                    && Arrays.equals(entry.arcs(), 0, prefix.length, prefix, 0, prefix.length)) {
+                codes.add(entry.code());
+            }
+        }
+        if (storeCompact) {
+            Criteria criteria = Criteria.where("kind").is(Kind.OID.name());
+            for (int i = 0; i < prefix.length; i++) {
+                criteria = criteria.and("arcs." + i).is(prefix[i]);
+            }
+            for (Document doc : mongoTemplate.find(Query.query(criteria), Document.class, COLLECTION)) {
+                codes.add(doc.getInteger("code"));
+            }
+        }
+        return List.copyOf(codes);
+    }
+
+    /**
+     * Replaces the entity's deviceId and OID with their canonical instances and, in compact storage
+     * mode, moves them into the code fields so only the codes are written to Mongo.
+     */
+    public void compact(SNMPNotificationEntity entity) {
+        if (entity.getDeviceId() != null) {
+            Entry device = device(entity.getDeviceId());
+            if (device != null) {
+                entity.setDeviceId(device.name());
+                if (storeCompact) {
+                    entity.setDeviceCode(device.code());
+                    entity.setDeviceId(null);
+                }
+            }
+        }
+        if (entity.getOid() != null) {
+            Entry oid = oid(entity.getOid());
+            if (oid != null) {
+                entity.setOid(oid.name());
+                if (storeCompact) {
+                    entity.setOidCode(oid.code());
+                    entity.setOid(null);
+                }
+            }
+        }
+    }
+
+    /** Fills deviceId and OID back in from their codes for entities read from Mongo. */
+    public SNMPNotificationEntity resolve(SNMPNotificationEntity entity) {
+        if (entity.getDeviceId() == null && entity.getDeviceCode() != null) {
+            entity.setDeviceId(devices.name(entity.getDeviceCode()));
+        }
+        if (entity.getOid() == null && entity.getOidCode() != null) {
+            entity.setOid(oids.name(entity.getOidCode()));
+        }
+        return entity;
+    }
+
+    private Table table(Kind kind) {
+        return kind == Kind.DEVICE ? devices : oids;
+    }
+
+    /**
+     * Stores the mappings created since the last call in one bulk insert and throws if some could not be
+     * stored; those are kept for the next call. The batch writer calls this before each insert, so no stored
+     * notification carries a code Mongo cannot resolve.
+     */
+    public void storePending() {
+        // One caller at a time, so a caller never returns while another still holds a mapping in flight
+        synchronized (unflushed) {
+            List<Document> batch = new ArrayList<>();
+            for (Document doc; (doc = unflushed.poll()) != null; ) {
+                batch.add(doc);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION).insert(batch).execute();
+                log.debug("📖 Stored {} intern dictionary mappings", batch.size());
+            } catch (BulkOperationException e) {
+                boolean failed = false;
+                for (BulkWriteError error : e.getErrors()) {
+                    // A duplicate id is a mapping stored by an earlier call whose reply was lost
+                    if (error.getCode() != DUPLICATE_KEY) {
+                        unflushed.add(batch.get(error.getIndex()));
+                        failed = true;
+                    }
+                }
+                if (failed) {
+                    // Not the bulk exception itself: its indexes refer to this batch, not the caller's
+                    throw new DataAccessResourceFailureException("Failed to store intern dictionary mappings: " + e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                unflushed.addAll(batch);
+                throw e;
+            }
+        }
+    }
+
+    private void flush() {
+        try {
+            storePending();
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Failed to store intern dictionary mappings, retrying: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (!unflushed.isEmpty()) {
+            log.warn("⚠️ {} intern dictionary mappings not stored at shutdown", unflushed.size());
+        }
+    }
+
+    /** Parses a dotted OID such as {@code 1.3.6.1.2.1} into its arcs; returns null if it is not numeric. */
+    public static int[] parseArcs(String oid) {
+        if (oid.isEmpty()) {
+            return null;
+        }
+        int count = 1;
+        for (int i = 0; i < oid.length(); i++) {
+            if (oid.charAt(i) == '.') {
+                count++;
+            }
+        }
+        int[] arcs = new int[count];
+        int arc = 0;
+        long current = -1;
+        for (int i = 0; i <= oid.length(); i++) {
+            char c = i < oid.length() ? oid.charAt(i) : '.';
+            if (c == '.') {
+                if (current < 0) {
+                    return null;
+                }
+                arcs[arc++] = (int) current;
+                current = -1;
+            } else if (c >= '0' && c <= '9') {
+                current = (current < 0 ? 0 : current * 10) + (c - '0');
+                if (current > Integer.MAX_VALUE) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return arcs;
+    }
+
+    /** Formats arcs back into dotted notation. */
+    public static String formatArcs(int[] arcs) {
+        StringBuilder sb = new StringBuilder(arcs.length * 3);
+        for (int i = 0; i < arcs.length; i++) {
+            if (i > 0) {
+                sb.append('.');
+            }
+            sb.append(arcs[i]);
+        }
+        return sb.toString();
+    }
+
+    private final class Table {
+
+        private final Kind kind;
+        private final Map<String, Entry> byName = new ConcurrentHashMap<>();
+        // Reverse lookup by code; replaced by a larger copy when it fills up
+        private volatile Entry[] byCode = new Entry[256];
+        // Codes [nextCode, blockEnd) are reserved for this instance; guarded by this
+        private int nextCode;
+        private int blockEnd;
+        private CompletableFuture<Integer> nextBlock;
+
+        Table(Kind kind) {
+            this.kind = kind;
+        }
+
+        Entry intern(String name) {
+            Entry entry = byName.get(name);
+            return entry != null ? entry : create(name);
+        }
+
+        String name(int code) {
+            Entry[] codes = byCode;
+            Entry entry = code >= 0 && code < codes.length ? codes[code] : null;
+            if (entry == null && storeCompact) {
+                // Code allocated by another instance since startup
+                Document doc = mongoTemplate.findOne(
+                        Query.query(Criteria.where("kind").is(kind.name()).and("code").is(code)), Document.class, COLLECTION);
+                entry = doc == null ? null : load(code, doc.getString("name"));
+            }
+            return entry == null ? null : entry.name();
+        }
+
+        private synchronized Entry create(String name) {
+            Entry entry = byName.get(name);
+            if (entry != null) {
+                return entry;
+            }
+            if (byName.size() >= maxEntries) {
+                return null;
+            }
+            if (!storeCompact) {
+                return load(byName.size(), name);
+            }
+            entry = load(allocate(), name);
+            Document doc = new Document("_id", kind + "#" + entry.code()).append("kind", kind.name())
+                    .append("name", name).append("code", entry.code());
+            if (entry.arcs() != null) {
+                doc.append("arcs", Arrays.stream(entry.arcs()).boxed().toList());
+            }
+            unflushed.add(doc);
+            return entry;
+        }
+
+        private synchronized Entry load(int code, String name) {
+            Entry entry = new Entry(code, name, kind == Kind.OID ? parseArcs(name) : null);
+            if (code >= byCode.length) {
+                byCode = Arrays.copyOf(byCode, Math.max(code + 1, byCode.length * 2));
+            }
+            byCode[code] = entry;
+            // A value loaded under several codes keeps the first for new notifications
+            byName.putIfAbsent(name, entry);
+            return entry;
+        }
+
+        // Next reserved code; only waits for Mongo if the prefetched block has not arrived yet
+        private synchronized int allocate() {
+            if (nextCode >= blockEnd) {
+                if (nextBlock == null || nextBlock.isCompletedExceptionally()) {
+                    reserveAhead();
+                }
+                int start = nextBlock.join();
+                nextBlock = null;
+                nextCode = start;
+                blockEnd = start + codeBlockSize;
+            }
+            int code = nextCode++;
+            if (nextBlock == null && blockEnd - nextCode <= codeBlockSize / 2) {
+                reserveAhead();
+            }
+            return code;
+        }
+
+        // Starts reserving the next block from the cluster-wide sequence on the writer thread
+        private synchronized void reserveAhead() {
+            nextBlock = CompletableFuture.supplyAsync(this::reserveBlock, writer);
+            // A failed reservation is tried again by the next allocation that needs it
+            nextBlock.whenComplete((start, e) -> {
+                if (e != null) {
+                    log.error("❌ Failed to reserve {} intern codes: {}", kind, e.getMessage());
+                }
+            });
+        }
+
+        private int reserveBlock() {
+            Document sequence = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is("seq:" + kind)),
+                    new Update().inc("next", codeBlockSize),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    Document.class, COLLECTION);
+            return sequence.getInteger("next") - codeBlockSize;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.vinodh.service;
+
+import com.vinodh.entity.SNMPNotificationEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latest value per (deviceId, OID), updated on the ingest path and read by the REST API without touching Mongo.
+ * Updates go through {@link ConcurrentHashMap#compute}, which locks only the affected bin; reads are lock-free.
+ * A newer trap timestamp wins, so out-of-order arrivals never roll a value back. The table is bounded by
+ * {@code traps.state-cache.max-entries} and an estimated memory budget; past either limit the least recently
+ * used keys are evicted in the background. At startup it is warmed from the last
+ * {@code traps.state-cache.warmup-hours} of stored traps.
+ */
+@Service
+public class LatestStateCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LatestStateCache.class);
+
+    // Rough heap cost of one key, slot, snapshot and map node, excluding the value string
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    /** Snapshot of the latest trap seen for one (deviceId, OID). */
+    public record LatestState(String deviceId, String oid, String value, Instant timestamp, Instant receivedAt) {}
+
+    private record Key(String deviceId, String oid) {}
+
+    private static final class Slot {
+        volatile LatestState state;
+        volatile long accessed;
+
+        Slot(LatestState state, long accessed) {
+            this.state = state;
+            this.accessed = accessed;
+        }
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private InternDictionary dictionary;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.state-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${traps.state-cache.max-entries:500000}")
+    private int maxEntries;
+
+    @Value("${traps.state-cache.max-memory-mb:256}")
+    private long maxMemoryMb;
+
+    @Value("${traps.state-cache.warmup-hours:24}")
+    private long warmupHours;
+
+    private final Map<Key, Slot> states = new ConcurrentHashMap<>();
+    // Logical clock for LRU order; cheaper than reading the system clock on every lookup
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+    private long maxBytes;
+    private ExecutorService evictor;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    void init() {
+        hits = Counter.builder("snmp_state_cache_hits")
+                .description("Latest-state lookups answered from memory")
+                .register(registry);
+        misses = Counter.builder("snmp_state_cache_misses")
+                .description("Latest-state lookups for keys not in the cache")
+                .register(registry);
+        evictions = Counter.builder("snmp_state_cache_evictions")
+                .description("Keys evicted from the latest-state cache to stay within budget")
+                .register(registry);
+        Gauge.builder("snmp_state_cache_entries", states, Map::size)
+                .description("(deviceId, OID) keys in the latest-state cache")
+                .register(registry);
+        Gauge.builder("snmp_state_cache_bytes", bytes, AtomicLong::get)
+                .description("Estimated heap used by the latest-state cache")
+                .baseUnit("bytes")
+                .register(registry);
+
+        if (!enabled) {
+            return;
+        }
+        maxBytes = maxMemoryMb * 1024 * 1024;
+        evictor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("state-cache-evictor").daemon(true).factory());
+        if (warmupHours > 0) {
+            // Off the startup thread; ingest updates racing with it are fine since the newer timestamp wins
+            evictor.execute(this::warmUp);
+        }
+        log.info("🗃️ Latest-state cache enabled: maxEntries={}, maxMemoryMb={}", maxEntries, maxMemoryMb);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Records a trap as the latest state of its (deviceId, OID) unless a newer one is already held. */
+    public void update(String deviceId, String oid, String value, Instant timestamp) {
+        if (!enabled || deviceId == null || oid == null) {
+            return;
+        }
+        Key key = key(deviceId, oid);
+        put(key, new LatestState(key.deviceId(), key.oid(), value, timestamp, Instant.now()));
+    }
+
+    /** Latest state of the (deviceId, OID), or null if none is cached. */
+    public LatestState get(String deviceId, String oid) {
+        // Lookups must not intern caller input; keys hold the values exactly as received
+        Slot slot = states.get(new Key(deviceId, oid));
+        if (slot == null) {
+            misses.increment();
+            return null;
+        }
+        slot.accessed = clock.incrementAndGet();
+        hits.increment();
+        return slot.state;
+    }
+
+    // Canonical instances from the dictionary so keys do not pin each message's own strings
+    private Key key(String deviceId, String oid) {
+        InternDictionary.Entry device = dictionary.device(deviceId);
+        InternDictionary.Entry oidEntry = dictionary.oid(oid);
+        return new Key(device != null ? device.name() : deviceId, oidEntry != null ? oidEntry.name() : oid);
+    }
+
+    private void put(Key key, LatestState state) {
+        long stamp = clock.incrementAndGet();
+        states.compute(key, (k, slot) -> {
+            if (slot == null) {
+                bytes.addAndGet(ENTRY_OVERHEAD_BYTES + sizeOf(state.value()));
+                return new Slot(state, stamp);
+            }
+            LatestState current = slot.state;
+            if (isNewer(state, current)) {
+                bytes.addAndGet(sizeOf(state.value()) - sizeOf(current.value()));
+                slot.state = state;
+            }
+            slot.accessed = stamp;
+            return slot;
+        });
+        if ((states.size() > maxEntries || bytes.get() > maxBytes) && evictionScheduled.compareAndSet(false, true)) {
+            evictor.execute(this::evict);
+        }
+    }
+
+    private static boolean isNewer(LatestState candidate, LatestState current) {
+        if (candidate.timestamp() == null || current.timestamp() == null) {
+            return true;
+        }
+        return !candidate.timestamp().isBefore(current.timestamp());
+    }
+
+    private static long sizeOf(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    // Drops the least recently used keys down to 90% of the budget so evictions run in batches
+    private void evict() {
+        try {
+            long entryTarget = maxEntries * 9L / 10;
+            long byteTarget = maxBytes * 9 / 10;
+            if (states.size() <= entryTarget && bytes.get() <= byteTarget) {
+                return;
+            }
+            List<Map.Entry<Key, Long>> byAge = new ArrayList<>(states.size());
+            states.forEach((key, slot) -> byAge.add(Map.entry(key, slot.accessed)));
+            byAge.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+
+            int evicted = 0;
+            for (Map.Entry<Key, Long> candidate : byAge) {
+                if (states.size() <= entryTarget && bytes.get() <= byteTarget) {
+                    break;
+                }
+                // Skip keys touched since the snapshot; they are no longer the oldest
+                boolean removed = states.computeIfPresent(candidate.getKey(), (k, slot) -> {
+                    if (slot.accessed != candidate.getValue()) {
+                        return slot;
+                    }
+                    bytes.addAndGet(-(ENTRY_OVERHEAD_BYTES + sizeOf(slot.state.value())));
+                    return null;
+                }) == null;
+                if (removed) {
+                    evicted++;
+                }
+            }
+            evictions.increment(evicted);
+            log.debug("🧹 Evicted {} keys from the latest-state cache", evicted);
+        } finally {
+            evictionScheduled.set(false);
+        }
+    }
+
+    // Loads the newest stored trap per (device, OID) within the warm-up window, grouped server-side
+    private void warmUp() {
+        long started = System.nanoTime();
+        boolean compact = dictionary.isStoreCompact();
+        String deviceField = compact ? "deviceCode" : "deviceId";
+        String oidField = compact ? "oidCode" : "oid";
+        Instant since = Instant.now().minus(Duration.ofHours(warmupHours));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("timestamp").gte(since).and("processed").is(true)),
+                Aggregation.sort(Sort.Direction.DESC, "timestamp"),
+                Aggregation.group(deviceField, oidField)
+                        .first("value").as("value")
+                        .first("timestamp").as("timestamp")
+                        .first("lastSeen").as("lastSeen"))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        try {
+            int loaded = 0;
+            for (Document doc : mongoTemplate.aggregate(aggregation, SNMPNotificationEntity.class, Document.class)) {
+                Document id = doc.get("_id", Document.class);
+                SNMPNotificationEntity entity = new SNMPNotificationEntity();
+                if (compact) {
+                    entity.setDeviceCode(id.getInteger(deviceField));
+                    entity.setOidCode(id.getInteger(oidField));
+                    dictionary.resolve(entity);
+                } else {
+                    entity.setDeviceId(id.getString(deviceField));
+                    entity.setOid(id.getString(oidField));
+                }
+                if (entity.getDeviceId() == null || entity.getOid() == null) {
+                    continue;
+                }
+                // Raw documents bypass the converters, so legacy string timestamps are parsed here
+                Object timestamp = doc.get("timestamp");
+                Instant eventTime = timestamp instanceof Date date ? date.toInstant()
+                        : timestamp instanceof String raw ? TimestampParser.tryParse(raw) : null;
+                Date lastSeen = doc.getDate("lastSeen");
+                Key key = key(entity.getDeviceId(), entity.getOid());
+                put(key, new LatestState(key.deviceId(), key.oid(), doc.getString("value"), eventTime,
+                        lastSeen != null ? lastSeen.toInstant() : eventTime));
+                loaded++;
+            }
+            log.info("🔥 Latest-state cache warmed with {} keys in {} ms", loaded,
+                    Duration.ofNanos(System.nanoTime() - started).toMillis());
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Latest-state cache warm-up failed, starting cold: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+}
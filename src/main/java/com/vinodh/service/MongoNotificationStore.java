@@ -0,0 +1,68 @@
+package com.vinodh.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.vinodh.entity.SNMPNotificationEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/** {@link NotificationStore} on the {@code snmp_notifications} collection. */
+@Component
+@ConditionalOnProperty(name = "traps.persistence.stand-in.enabled", havingValue = "false", matchIfMissing = true)
+public class MongoNotificationStore implements NotificationStore {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public void insert(List<SNMPNotificationEntity> entities) {
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SNMPNotificationEntity.class);
+        ops.insert(entities);
+        ops.execute();
+    }
+
+    @Override
+    public Mono<Void> insertReactive(List<SNMPNotificationEntity> entities) {
+        return reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SNMPNotificationEntity.class)
+                .insert(entities)
+                .execute()
+                .then();
+    }
+
+    @Override
+    public List<String> updateCounts(List<CountUpdate> updates) {
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SNMPNotificationEntity.class);
+        for (CountUpdate update : updates) {
+            ops.updateOne(Query.query(Criteria.where("_id").is(update.entityId())),
+                    new Update().set("occurrenceCount", update.count()).set("lastSeen", update.lastSeen()));
+        }
+        BulkWriteResult result = ops.execute();
+        if (result.getMatchedCount() == updates.size()) {
+            return List.of();
+        }
+        Set<String> found = storedIds(updates);
+        return updates.stream().map(CountUpdate::entityId).filter(id -> !found.contains(id)).toList();
+    }
+
+    private Set<String> storedIds(List<CountUpdate> updates) {
+        Query query = Query.query(Criteria.where("_id").in(updates.stream().map(CountUpdate::entityId).toList()));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, SNMPNotificationEntity.class).stream()
+                .map(SNMPNotificationEntity::getId)
+                .collect(Collectors.toSet());
+    }
+}
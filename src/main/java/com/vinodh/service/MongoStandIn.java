@@ -0,0 +1,79 @@
+package com.vinodh.service;
+
+import com.vinodh.entity.SNMPNotificationEntity;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the Mongo writes of the ingest path, for capacity planning without a cluster
+ * (the {@code loadtest} profile). It replaces {@link MongoNotificationStore} only when
+ * {@code traps.persistence.stand-in.enabled} is set: bulk inserts and dedup count updates are acknowledged
+ * after a simulated latency of {@code batch-latency-ms} plus {@code per-document-micros} per document,
+ * and only counted. Nothing is stored, so REST reads are not served in this mode.
+ */
+@Component
+@ConditionalOnProperty(name = "traps.persistence.stand-in.enabled", havingValue = "true")
+public class MongoStandIn implements NotificationStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoStandIn.class);
+
+    @Value("${traps.persistence.stand-in.batch-latency-ms:2}")
+    private long batchLatencyMs;
+
+    @Value("${traps.persistence.stand-in.per-document-micros:5}")
+    private long perDocumentMicros;
+
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder updated = new LongAdder();
+
+    @Override
+    public void insert(List<SNMPNotificationEntity> entities) {
+        simulateLatency(entities.size());
+        inserted.add(entities.size());
+    }
+
+    @Override
+    public Mono<Void> insertReactive(List<SNMPNotificationEntity> entities) {
+        // A timer rather than a sleep, as the reactive driver would not hold a thread either
+        return Mono.delay(Duration.ofNanos(latencyNanos(entities.size())))
+                .doOnNext(tick -> inserted.add(entities.size()))
+                .then();
+    }
+
+    @Override
+    public List<String> updateCounts(List<CountUpdate> updates) {
+        simulateLatency(updates.size());
+        updated.add(updates.size());
+        return List.of();
+    }
+
+    private long latencyNanos(int documents) {
+        return TimeUnit.MILLISECONDS.toNanos(batchLatencyMs) + TimeUnit.MICROSECONDS.toNanos(perDocumentMicros * documents);
+    }
+
+    private void simulateLatency(int documents) {
+        long nanos = latencyNanos(documents);
+        if (nanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        log.info("🧪 Mongo stand-in totals: {} inserted, {} updated", inserted.sum(), updated.sum());
+    }
+}
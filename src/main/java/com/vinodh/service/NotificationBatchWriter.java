@@ -0,0 +1,324 @@
+package com.vinodh.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.vinodh.entity.SNMPNotificationEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-batching stage in front of MongoDB.
+ * Entities from every stream are queued here and flushed as unordered bulk inserts
+ * once either the batch size or the batch wait limit is reached. Each caller gets a
+ * future that completes only after the batch holding its entity has been acknowledged.
+ * With {@code traps.persistence.mode=reactive} the bulk inserts go through the reactive driver:
+ * a flusher hands the batch over and moves on, the futures complete from the driver's callback,
+ * and at most {@code traps.persistence.reactive.max-in-flight} inserts are outstanding at a time.
+ * Entities wait in one queue per {@link TrapPriority}; batches are filled by weighted shares
+ * ({@code traps.priority.weights}) and a batch holding a critical trap is flushed without waiting to fill up.
+ */
+@Service
+@DependsOn("timeSeriesCollectionInitializer")
+public class NotificationBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationBatchWriter.class);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private NotificationStore store;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private InternDictionary dictionary;
+
+    @Value("${traps.persistence.mode:blocking}")
+    private String mode;
+
+    @Value("${traps.persistence.reactive.max-in-flight:8}")
+    private int maxInFlight;
+
+    @Value("${traps.persistence.batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${traps.persistence.batch.max-wait-ms:20}")
+    private long maxWaitMs;
+
+    @Value("${traps.persistence.batch.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${traps.persistence.batch.flusher-threads:2}")
+    private int flusherThreads;
+
+    @Value("${traps.priority.weights.critical:8}")
+    private int criticalWeight;
+
+    @Value("${traps.priority.weights.normal:4}")
+    private int normalWeight;
+
+    @Value("${traps.priority.weights.bulk:1}")
+    private int bulkWeight;
+
+    private PriorityWriteQueue<PendingWrite> queue;
+    private boolean reactive;
+    // Reactive bulk inserts not yet acknowledged
+    private Semaphore inFlight;
+    private final List<Thread> flushers = new ArrayList<>();
+    private volatile boolean running;
+
+    private DistributionSummary batchSize;
+    private Timer flushLatency;
+    private Counter failedWrites;
+    private final Timer[] queueWait = new Timer[TrapPriority.values().length];
+
+    private record PendingWrite(SNMPNotificationEntity entity, CompletableFuture<Void> ack, TrapPriority priority, long queuedAt) {}
+
+    @PostConstruct
+    void start() {
+        // Indexed by TrapPriority ordinal
+        queue = new PriorityWriteQueue<>(queueCapacity, new int[] {criticalWeight, normalWeight, bulkWeight});
+        switch (mode) {
+            case "blocking" -> reactive = false;
+            case "reactive" -> reactive = true;
+            default -> throw new IllegalStateException("Unknown traps.persistence.mode: " + mode);
+        }
+        inFlight = new Semaphore(maxInFlight);
+
+        batchSize = DistributionSummary.builder("snmp_persistence_batch_size")
+                .description("Number of notifications written per Mongo bulk insert")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+
+        flushLatency = Timer.builder("snmp_persistence_flush_duration")
+                .description("Latency of Mongo bulk insert flushes")
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+
+        failedWrites = Counter.builder("snmp_persistence_failed_writes")
+                .description("Notifications rejected by Mongo during a bulk insert")
+                .register(registry);
+
+        Gauge.builder("snmp_persistence_queue_depth", queue, PriorityWriteQueue::size)
+                .description("Notifications waiting to be flushed to Mongo")
+                .register(registry);
+
+        for (TrapPriority priority : TrapPriority.values()) {
+            Gauge.builder("snmp_priority_queue_depth", queue, q -> q.size(priority))
+                    .tag("priority", priority.tag())
+                    .description("Notifications waiting to be flushed to Mongo, by trap priority")
+                    .register(registry);
+            queueWait[priority.ordinal()] = Timer.builder("snmp_priority_queue_wait")
+                    .tag("priority", priority.tag())
+                    .description("Time a notification waited in the batch writer before its flush, by trap priority")
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        if (reactive) {
+            Gauge.builder("snmp_persistence_reactive_in_flight", inFlight, permits -> maxInFlight - permits.availablePermits())
+                    .description("Reactive Mongo bulk inserts awaiting acknowledgement")
+                    .register(registry);
+        }
+
+        running = true;
+        for (int i = 0; i < flusherThreads; i++) {
+            Thread flusher = Thread.ofPlatform()
+                    .name("mongo-batch-flusher-" + i)
+                    .daemon(true)
+                    .start(this::flushLoop);
+            flushers.add(flusher);
+        }
+        log.info("🧺 Mongo batch writer started: mode={}, maxBatchSize={}, maxWaitMs={}, queueCapacity={}, flusherThreads={}",
+                mode, maxBatchSize, maxWaitMs, queueCapacity, flusherThreads);
+    }
+
+    /**
+     * Queues an entity for the next bulk insert at its {@link SNMPNotificationEntity#getPriority() priority}
+     * (normal if unset). In the blocking mode the caller, a virtual thread, waits while that priority's
+     * queue is full, which pushes back on ingest instead of growing memory without limit. In the reactive
+     * mode the caller may be a gRPC transport thread, so a full queue fails the write at once with a
+     * {@link WriteQueueFullException} instead.
+     */
+    public CompletableFuture<Void> submit(SNMPNotificationEntity entity) {
+        CompletableFuture<Void> ack = new CompletableFuture<>();
+        if (!running) {
+            ack.completeExceptionally(new IllegalStateException("Batch writer is shut down"));
+            return ack;
+        }
+        try {
+            TrapPriority priority = entity.getPriority() != null ? entity.getPriority() : TrapPriority.NORMAL;
+            PendingWrite write = new PendingWrite(entity, ack, priority, System.nanoTime());
+            if (!reactive) {
+                queue.put(write, priority);
+            } else if (!queue.offer(write, priority)) {
+                ack.completeExceptionally(new WriteQueueFullException("Mongo write queue is full for " + priority.tag() + " traps"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ack.completeExceptionally(e);
+        }
+        return ack;
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (!queue.awaitNotEmpty(TimeUnit.MILLISECONDS.toNanos(100))) {
+                    continue;
+                }
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                boolean urgent = false;
+                while (batch.size() < maxBatchSize) {
+                    urgent |= queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    // Critical traps do not wait for the batch to fill
+                    if (urgent || batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    if (!queue.awaitNotEmpty(remaining)) {
+                        break;
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("❌ Unexpected error in batch flusher: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) throws InterruptedException {
+        List<SNMPNotificationEntity> entities = new ArrayList<>(batch.size());
+        long now = System.nanoTime();
+        for (PendingWrite write : batch) {
+            entities.add(write.entity());
+            queueWait[write.priority().ordinal()].record(now - write.queuedAt(), TimeUnit.NANOSECONDS);
+        }
+
+        batchSize.record(batch.size());
+        long start = System.nanoTime();
+        try {
+            // Codes the batch refers to must be resolvable before it is stored
+            dictionary.storePending();
+        } catch (RuntimeException e) {
+            complete(batch, e, start);
+            return;
+        }
+        if (reactive) {
+            // The flusher only waits here when max-in-flight inserts are outstanding
+            inFlight.acquire();
+            List<PendingWrite> writes = List.copyOf(batch);
+            try {
+                store.insertReactive(entities)
+                        .doFinally(signal -> inFlight.release())
+                        .subscribe(null, error -> complete(writes, error, start), () -> complete(writes, null, start));
+            } catch (RuntimeException e) {
+                // Thrown while the insert was being built, before doFinally was attached
+                inFlight.release();
+                complete(writes, e, start);
+            }
+            return;
+        }
+        try {
+            store.insert(entities);
+            complete(batch, null, start);
+        } catch (RuntimeException e) {
+            complete(batch, e, start);
+        }
+    }
+
+    // Completes the futures of a flushed batch; error is null when the whole batch was stored
+    private void complete(List<PendingWrite> batch, Throwable error, long start) {
+        flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (error == null) {
+            batch.forEach(write -> write.ack().complete(null));
+            return;
+        }
+        Map<Integer, String> failures = bulkFailures(error);
+        if (failures == null) {
+            log.error("❌ Mongo bulk insert of {} notifications failed: {}", batch.size(), error.getMessage());
+            failedWrites.increment(batch.size());
+            batch.forEach(write -> write.ack().completeExceptionally(error));
+            return;
+        }
+        log.warn("⚠️ Mongo bulk insert partially failed: {}/{} notifications rejected", failures.size(), batch.size());
+        failedWrites.increment(failures.size());
+        for (int i = 0; i < batch.size(); i++) {
+            String failure = failures.get(i);
+            if (failure == null) {
+                batch.get(i).ack().complete(null);
+            } else {
+                batch.get(i).ack().completeExceptionally(new IllegalStateException("Bulk insert rejected: " + failure));
+            }
+        }
+    }
+
+    // Per-document errors of an unordered bulk insert, keyed by batch index; null if the whole batch failed
+    private static Map<Integer, String> bulkFailures(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            List<BulkWriteError> errors = null;
+            if (t instanceof BulkOperationException bulk) {
+                errors = bulk.getErrors();
+            } else if (t instanceof MongoBulkWriteException bulk) {
+                errors = bulk.getWriteErrors();
+            }
+            if (errors != null && !errors.isEmpty()) {
+                Map<Integer, String> failures = new HashMap<>();
+                for (BulkWriteError error : errors) {
+                    // A duplicate id means the entity is already stored (e.g. replayed from the WAL)
+                    if (error.getCode() != DUPLICATE_KEY) {
+                        failures.put(error.getIndex(), error.getMessage());
+                    }
+                }
+                return failures;
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread flusher : flushers) {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        // Let reactive inserts already handed to the driver be acknowledged
+        if (inFlight.tryAcquire(maxInFlight, 10, TimeUnit.SECONDS)) {
+            inFlight.release(maxInFlight);
+        }
+        List<PendingWrite> unflushed = new ArrayList<>();
+        queue.drainTo(unflushed, Integer.MAX_VALUE);
+        unflushed.forEach(write -> write.ack().completeExceptionally(new IllegalStateException("Batch writer is shut down")));
+        log.info("🧺 Mongo batch writer stopped, {} notifications left unflushed", unflushed.size());
+    }
+}
@@ -0,0 +1,10 @@
+package com.vinodh.service;
+
+import java.time.Instant;
+
+/**
+ * Filter of the notification query API; null fields are not filtered on.
+ * {@code oidPrefix} selects the OID subtree, e.g. {@code 1.3.6.1.2.1} matches itself and {@code 1.3.6.1.2.1.2.2}
+ * but not {@code 1.3.6.1.2.10}. {@code from} is inclusive, {@code to} exclusive.
+ */
+public record NotificationFilter(String deviceId, String oidPrefix, Instant from, Instant to, Boolean processed) {}
@@ -0,0 +1,180 @@
+package com.vinodh.service;
+
+import com.vinodh.executor.IngestExecutor;
+import com.vinodh.logging.HotPathLogger;
+import com.vinodh.tracing.NotificationTracing;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Validation and persistence of one incoming notification, shared by every ingest front end
+ * (the gRPC streams and the SNMP UDP receiver). The front end supplies an {@link Outcome} that
+ * turns the result into its own response.
+ */
+@Service
+public class NotificationIngestPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationIngestPipeline.class);
+
+    /** How a front end reports the result of one notification. */
+    public interface Outcome {
+        void processed();
+
+        void validationFailed(String reason);
+
+        void internalError(Throwable e);
+
+        /** Refused for lack of capacity before anything was stored; the notification may be sent again. */
+        default void rejected(Throwable e) {
+            internalError(e);
+        }
+    }
+
+    @Autowired
+    private NotificationProcessorService processorService;
+
+    @Autowired
+    private HotPathLogger hotLog;
+
+    @Autowired
+    private TrapPriorityClassifier priorities;
+
+    // Virtual threads, optionally serialized per device (traps.ingest.executor)
+    @Autowired
+    private IngestExecutor ingestExecutor;
+
+    // blocking | reactive (traps.persistence.mode)
+    @Value("${traps.persistence.mode:blocking}")
+    private String persistenceMode;
+
+    private boolean reactive;
+
+    @PostConstruct
+    void init() {
+        reactive = "reactive".equals(persistenceMode);
+        if (reactive && ingestExecutor.isOrdered()) {
+            throw new IllegalStateException("traps.persistence.mode=reactive does not run on the ingest executor and cannot "
+                    + "keep the per-device order of traps.ingest.executor=device-lanes; use traps.ingest.executor=virtual");
+        }
+    }
+
+    /**
+     * Persists one notification and reports the result to {@code outcome}; the future completes once it has been reported.
+     * In the {@code blocking} persistence mode the work runs on the ingest executor and waits for the write.
+     * In the {@code reactive} mode it runs on the calling thread and the outcome is chained off the write's
+     * completion, so no thread is held per notification while Mongo works; it cannot be combined with
+     * per-device lanes, and a full write queue is reported as {@link Outcome#rejected} instead of blocking.
+     * {@code priority} decides how soon the batch writer flushes it.
+     */
+    public CompletableFuture<Void> process(String deviceId, String oid, String value, String timestamp,
+                                           TrapPriority priority, NotificationTracing.Trace trace, Outcome outcome) {
+        long received = System.nanoTime();
+        if (!reactive) {
+            return ingestExecutor.submit(deviceId, () -> {
+                long started = System.nanoTime();
+                try {
+                    persist(deviceId, oid, value, timestamp, priority).join();
+                    trace.processed(System.nanoTime() - started);
+                    outcome.processed();
+                    priorities.recordLatency(priority, System.nanoTime() - received);
+                } catch (Exception ex) {
+                    fail(deviceId, oid, value, timestamp, trace, outcome, ex).join();
+                }
+            });
+        }
+        CompletableFuture<Void> write;
+        try {
+            write = persist(deviceId, oid, value, timestamp, priority);
+        } catch (RuntimeException e) {
+            write = CompletableFuture.failedFuture(e);
+        }
+        return write.handle((v, ex) -> {
+            if (ex != null) {
+                return fail(deviceId, oid, value, timestamp, trace, outcome, ex);
+            }
+            trace.processed(System.nanoTime() - received);
+            outcome.processed();
+            priorities.recordLatency(priority, System.nanoTime() - received);
+            return CompletableFuture.<Void>completedFuture(null);
+        }).thenCompose(Function.identity());
+    }
+
+    // Records the failed notification and reports it; validation failures are reported once the error record write
+    // settles, whether or not it succeeded
+    private CompletableFuture<Void> fail(String deviceId, String oid, String value, String timestamp,
+                                         NotificationTracing.Trace trace, Outcome outcome, Throwable ex) {
+        Throwable e = unwrap(ex);
+        if (e instanceof WriteQueueFullException) {
+            // Nothing was stored and the sender is told to resend, so no error record is written
+            hotLog.warn(log, deviceId, "⚠️ Write queue full, rejected deviceId={}", deviceId);
+            outcome.rejected(e);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (e instanceof IllegalArgumentException) {
+            hotLog.warn(log, deviceId, "⚠️ Validation failed for deviceId={}, reason={}", deviceId, e.getMessage());
+            trace.validationError();
+            return recordError(deviceId, oid, value, timestamp, e.getMessage())
+                    .handle((v, recordFailure) -> {
+                        outcome.validationFailed(e.getMessage());
+                        return null;
+                    });
+        }
+        hotLog.error(log, deviceId, "❌ Internal error for deviceId={}: {}", deviceId, e.getMessage(), e);
+        trace.internalError(e);
+        // A dead-lettered trap already has its failure recorded in the dead-letter store
+        if (!(e instanceof DeadLetteredException)) {
+            recordError(deviceId, oid, value, timestamp, "Internal error: " + e.getMessage());
+        }
+        outcome.internalError(e);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Writes an error record; a failure to write it is logged, never thrown
+    private CompletableFuture<Void> recordError(String deviceId, String oid, String value, String timestamp, String error) {
+        CompletableFuture<Void> write;
+        try {
+            write = processorService.handleError(deviceId, oid, value, timestamp, error);
+        } catch (RuntimeException e) {
+            write = CompletableFuture.failedFuture(e);
+        }
+        return write.whenComplete((v, ex) -> {
+            if (ex != null) {
+                hotLog.warn(log, deviceId, "⚠️ Failed to store error record for deviceId={}: {}", deviceId, unwrap(ex).getMessage());
+            }
+        });
+    }
+
+    /**
+     * Validates a single notification and queues it for persistence; the future completes once its Mongo batch
+     * is acknowledged. Throws {@link IllegalArgumentException} for validation failures.
+     */
+    private CompletableFuture<Void> persist(String deviceId, String oid, String value, String timestamp, TrapPriority priority) {
+        hotLog.info(log, deviceId, "🔧 Processing SNMP notification on thread: {}", Thread.currentThread().getName());
+
+        // Validation
+        if (deviceId.isBlank()) {
+            throw new IllegalArgumentException("Device ID is required");
+        }
+
+        // Simulate controlled error scenario
+        if ("1.3.6.1.2.1.22".equals(oid)) {
+            throw new RuntimeException("Simulated database failure");
+        }
+
+        // Actual persistence: completes when the Mongo batch holding this notification is acknowledged
+        return processorService.processNotification(deviceId, oid, value, timestamp, priority)
+                .thenRun(() -> hotLog.info(log, deviceId, "✅ [VT] Processed notification for deviceId={}", deviceId));
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+    }
+}
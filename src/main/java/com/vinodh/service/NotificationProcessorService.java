@@ -1,39 +1,98 @@
 package com.vinodh.service;
 
 import com.vinodh.entity.SNMPNotificationEntity;
-import com.vinodh.repository.SNMPNotificationRepository;
+import com.vinodh.logging.HotPathLogger;
+import com.vinodh.metrics.TrapRateAnalytics;
+import com.vinodh.wal.NotificationWal;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class NotificationProcessorService {
 
     private static final Logger log = LoggerFactory.getLogger(NotificationProcessorService.class);
 
+    // Batch writer behind transient-failure retries and the dead-letter store
+    @Autowired
+    private NotificationRetryQueue retries;
+
+    @Autowired
+    private NotificationWal wal;
+
+    @Autowired
+    private TrapDeduplicator deduplicator;
+
+    @Autowired
+    private InternDictionary dictionary;
+
+    @Autowired
+    private TimestampParser timestampParser;
+
     @Autowired
-    private SNMPNotificationRepository repository;
+    private LatestStateCache stateCache;
 
-    public void processNotification(String deviceId, String oid, String value, String timestamp) {
-        log.info("✅ Processing notification for deviceId: {}", deviceId);
+    @Autowired
+    private TrapRateAnalytics rateAnalytics;
+
+    @Autowired
+    private HotPathLogger hotLog;
+
+    /**
+     * Queues the notification for the next Mongo bulk insert.
+     * The returned future completes once the batch holding it has been acknowledged, possibly after
+     * retries, or once it is in the write-ahead log when {@code traps.wal.enabled} is set.
+     */
+    public CompletableFuture<Void> processNotification(String deviceId, String oid, String value, String timestamp) {
+        return processNotification(deviceId, oid, value, timestamp, TrapPriority.NORMAL);
+    }
+
+    /** As above, queued for the bulk insert at the given priority. */
+    public CompletableFuture<Void> processNotification(String deviceId, String oid, String value, String timestamp,
+                                                       TrapPriority priority) {
+        hotLog.info(log, deviceId, "✅ Processing notification for deviceId: {}", deviceId);
+        rateAnalytics.record(deviceId, oid);
+        // Parsed once here; invalid values fail validation or are normalized per traps.timestamp.on-invalid
+        Instant eventTime = timestampParser.parse(timestamp);
+        // Folded repeats still refresh the latest state
+        stateCache.update(deviceId, oid, value, eventTime);
+        if (deduplicator.fold(deviceId, oid, value)) {
+            log.debug("🔁 Folded repeated trap for deviceId: {}", deviceId);
+            return CompletableFuture.completedFuture(null);
+        }
         // Here you can add custom validation, transformation, etc.
         SNMPNotificationEntity entity = new SNMPNotificationEntity(
-                deviceId, oid, value, timestamp, true, null
+                deviceId, oid, value, eventTime, true, null
         );
-        log.info("💾 Saved notification for deviceId: {}", deviceId);
-
-        long start = System.currentTimeMillis();
-        repository.save(entity);
-        long end = System.currentTimeMillis();
-        log.info("Mongo save took {} ms", (end - start));
-
+        String id = new ObjectId().toHexString();
+        entity.setId(id);
+        entity.setPriority(priority);
+        // Repeats only fold into a record once its write is acknowledged; until then they are stored too
+        return persist(entity).thenRun(() -> deduplicator.track(deviceId, oid, value, id));
     }
 
-    public void handleError(String deviceId, String oid, String value, String timestamp, String error) {
+    public CompletableFuture<Void> handleError(String deviceId, String oid, String value, String timestamp, String error) {
         SNMPNotificationEntity entity = new SNMPNotificationEntity(
-                deviceId, oid, value, timestamp, false, error
+                deviceId, oid, value, timestampParser.parseOrNow(timestamp), false, error
         );
-        repository.save(entity);
+        entity.setId(new ObjectId().toHexString());
+        return persist(entity);
+    }
+
+    private CompletableFuture<Void> persist(SNMPNotificationEntity entity) {
+        Instant now = Instant.now();
+        entity.setFirstSeen(now);
+        entity.setLastSeen(now);
+        if (wal.isEnabled()) {
+            // Compacted when drained: codes in the log could outlive a dictionary mapping lost in a crash
+            return wal.append(entity);
+        }
+        dictionary.compact(entity);
+        return retries.submit(entity);
     }
 }
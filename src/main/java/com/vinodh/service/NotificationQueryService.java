@@ -0,0 +1,368 @@
+package com.vinodh.service;
+
+import com.mongodb.ExplainVerbosity;
+import com.vinodh.archive.NotificationArchive;
+import com.vinodh.controller.NotificationPage;
+import com.vinodh.entity.SNMPNotificationEntity;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read side of {@code snmp_notifications} without loading the collection onto the heap:
+ * keyset pages ordered by {@code _id} or by {@code (timestamp, _id)}, and cursor-backed streams.
+ * Filtered queries are checked against the query planner once per query shape; on collections above
+ * {@code traps.api.scan-guard.min-documents} a shape the indexes cannot serve is refused rather than
+ * answered with a collection scan.
+ * When the {@link NotificationArchive} is enabled, pages and streams merge archived notifications in
+ * with those still in Mongo, in the same order and with the same cursors.
+ */
+@Service
+public class NotificationQueryService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationQueryService.class);
+
+    public enum SortKey { ID, TIMESTAMP }
+
+    /** Position of a cursor: the sort key of the last notification returned. {@code timestamp} is null for {@link SortKey#ID}. */
+    public record Keyset(Instant timestamp, String id) {
+        public static Keyset of(SNMPNotificationEntity last) {
+            return new Keyset(last.getTimestamp(), last.getId());
+        }
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private InternDictionary dictionary;
+
+    @Autowired
+    private NotificationArchive archive;
+
+    @Value("${traps.api.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${traps.api.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${traps.api.stream-batch-size:500}")
+    private int streamBatchSize;
+
+    @Value("${traps.api.scan-guard.enabled:true}")
+    private boolean scanGuardEnabled;
+
+    @Value("${traps.api.scan-guard.min-documents:100000}")
+    private long scanGuardMinDocuments;
+
+    // Planner verdict per query shape (filtered fields + sort); values do not change which index wins
+    private final Map<String, Boolean> indexedShapes = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the page following {@code cursor} (the first page if null).
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public NotificationPage page(String cursor, Integer limit, SortKey sortKey, Sort.Direction direction) {
+        int size = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        Keyset after = parseCursor(cursor, sortKey);
+        Query query = keysetQuery(List.of(), after, sortKey, direction).limit(size);
+
+        List<SNMPNotificationEntity> items = mongoTemplate.find(query, SNMPNotificationEntity.class);
+        items.forEach(dictionary::resolve);
+        items = withArchived(items, new NotificationFilter(null, null, null, null, null), after, sortKey, direction, size);
+        String nextCursor = items.size() < size ? null : cursorOf(items.get(items.size() - 1), sortKey);
+        return new NotificationPage(items, nextCursor);
+    }
+
+    /**
+     * Returns the page of notifications matching {@code filter} after {@code cursor}, ordered by {@code (timestamp, _id)}.
+     * @throws IllegalArgumentException if the cursor or OID prefix is malformed
+     * @throws UnindexedQueryException if the query would scan a large collection
+     */
+    public NotificationPage query(NotificationFilter filter, String cursor, Integer limit, Sort.Direction direction) {
+        int size = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        Keyset after = parseCursor(cursor, SortKey.TIMESTAMP);
+        List<Criteria> filters = filterCriteria(filter);
+        List<SNMPNotificationEntity> items = List.of();
+        if (filters != null) {
+            Query query = keysetQuery(filters, after, SortKey.TIMESTAMP, direction).limit(size);
+            checkIndexed(filters, query);
+            items = mongoTemplate.find(query, SNMPNotificationEntity.class);
+            items.forEach(dictionary::resolve);
+        }
+        // The archive stores plain values, so it is searched even when the compact dictionary has no match
+        items = withArchived(items, filter, after, SortKey.TIMESTAMP, direction, size);
+        String nextCursor = items.size() < size ? null : cursorOf(items.get(items.size() - 1), SortKey.TIMESTAMP);
+        return new NotificationPage(items, nextCursor);
+    }
+
+    // Merges the matching archived notifications into a page read from Mongo
+    private List<SNMPNotificationEntity> withArchived(List<SNMPNotificationEntity> items, NotificationFilter filter, Keyset after,
+                                                      SortKey sortKey, Sort.Direction direction, int size) {
+        if (!archive.isEnabled()) {
+            return items;
+        }
+        List<SNMPNotificationEntity> archived = archive.find(filter, sortKey, after, direction, size);
+        if (archived.isEmpty()) {
+            return items;
+        }
+        List<SNMPNotificationEntity> merged = new ArrayList<>(size);
+        merge(items.iterator(), archived.iterator(), ordering(sortKey, direction))
+                .forEachRemaining(entity -> {
+                    if (merged.size() < size) {
+                        merged.add(entity);
+                    }
+                });
+        return merged;
+    }
+
+    // Null when the filter cannot match anything, e.g. a device the compact dictionary has never seen
+    private List<Criteria> filterCriteria(NotificationFilter filter) {
+        List<Criteria> filters = new ArrayList<>();
+        boolean compact = dictionary.isStoreCompact();
+        if (filter.deviceId() != null) {
+            if (compact) {
+                List<Integer> codes = dictionary.deviceCodes(filter.deviceId());
+                if (codes.isEmpty()) {
+                    return null;
+                }
+                filters.add(Criteria.where("deviceCode").in(codes));
+            } else {
+                filters.add(Criteria.where("deviceId").is(filter.deviceId()));
+            }
+        }
+        if (filter.oidPrefix() != null) {
+            int[] arcs = InternDictionary.parseArcs(filter.oidPrefix());
+            if (arcs == null) {
+                throw new IllegalArgumentException("Malformed OID prefix: " + filter.oidPrefix());
+            }
+            if (compact) {
+                List<Integer> codes = dictionary.oidCodesUnder(arcs);
+                if (codes.isEmpty()) {
+                    return null;
+                }
+                filters.add(Criteria.where("oidCode").in(codes));
+            } else {
+                // Anchored so the oid index is scanned as a range; the arc boundary keeps 1.3.6.1.2.10 out of 1.3.6.1.2.1
+                String prefix = InternDictionary.formatArcs(arcs).replace(".", "\\.");
+                filters.add(Criteria.where("oid").regex("^" + prefix + "(\\.|$)"));
+            }
+        }
+        if (filter.from() != null || filter.to() != null) {
+            Criteria timestamp = Criteria.where("timestamp");
+            if (filter.from() != null) {
+                timestamp.gte(filter.from());
+            }
+            if (filter.to() != null) {
+                timestamp.lt(filter.to());
+            }
+            filters.add(timestamp);
+        }
+        if (filter.processed() != null) {
+            filters.add(Criteria.where("processed").is(filter.processed()));
+        }
+        return filters;
+    }
+
+    private void checkIndexed(List<Criteria> filters, Query query) {
+        if (!scanGuardEnabled || filters.isEmpty()) {
+            return;
+        }
+        TreeSet<String> fields = new TreeSet<>();
+        filters.forEach(criteria -> fields.addAll(criteria.getCriteriaObject().keySet()));
+        String shape = fields + " sort " + query.getSortObject().toJson();
+
+        Boolean indexed = indexedShapes.get(shape);
+        if (indexed == null) {
+            String collection = mongoTemplate.getCollectionName(SNMPNotificationEntity.class);
+            if (mongoTemplate.estimatedCount(collection) < scanGuardMinDocuments) {
+                return;
+            }
+            Document explain = mongoTemplate.getCollection(collection)
+                    .find(query.getQueryObject())
+                    .sort(query.getSortObject())
+                    .limit(query.getLimit())
+                    .explain(ExplainVerbosity.QUERY_PLANNER);
+            indexed = !hasStage(explain, "COLLSCAN");
+            indexedShapes.put(shape, indexed);
+            if (!indexed) {
+                log.warn("🚫 Query shape {} has no usable index, refusing it", shape);
+            }
+        }
+        if (!indexed) {
+            throw new UnindexedQueryException("No index serves a query on " + fields);
+        }
+    }
+
+    // Walks the winning plan, which nests stages through inputStage/inputStages and differs per server version
+    private static boolean hasStage(Object node, String stage) {
+        if (node instanceof Document doc) {
+            if (stage.equals(doc.get("stage"))) {
+                return true;
+            }
+            for (Map.Entry<String, Object> entry : doc.entrySet()) {
+                if (!entry.getKey().equals("rejectedPlans") && hasStage(entry.getValue(), stage)) {
+                    return true;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                if (hasStage(value, stage)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Streams every notification after {@code cursor} straight from a Mongo cursor.
+     * The caller must close the stream.
+     */
+    public Stream<SNMPNotificationEntity> stream(String cursor, SortKey sortKey, Sort.Direction direction) {
+        Keyset after = parseCursor(cursor, sortKey);
+        Query query = keysetQuery(List.of(), after, sortKey, direction).cursorBatchSize(streamBatchSize);
+        Stream<SNMPNotificationEntity> hot = mongoTemplate.stream(query, SNMPNotificationEntity.class).map(dictionary::resolve);
+        if (!archive.isEnabled()) {
+            return hot;
+        }
+        Stream<SNMPNotificationEntity> cold = archive.stream(sortKey, after, direction, streamBatchSize);
+        Iterator<SNMPNotificationEntity> merged = merge(hot.iterator(), cold.iterator(), ordering(sortKey, direction));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(hot::close)
+                .onClose(cold::close);
+    }
+
+    /** Sort order of pages and streams; null timestamps first, as Mongo sorts them. */
+    public static Comparator<SNMPNotificationEntity> ordering(SortKey sortKey, Sort.Direction direction) {
+        Comparator<SNMPNotificationEntity> byId = Comparator.comparing(SNMPNotificationEntity::getId);
+        Comparator<SNMPNotificationEntity> order = sortKey == SortKey.ID ? byId
+                : Comparator.comparing(SNMPNotificationEntity::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(byId);
+        return direction == Sort.Direction.ASC ? order : order.reversed();
+    }
+
+    /**
+     * Merges two sorted sequences. A notification present in both, which happens while the archive job
+     * is deleting what it just archived, is returned once.
+     */
+    private static Iterator<SNMPNotificationEntity> merge(Iterator<SNMPNotificationEntity> a, Iterator<SNMPNotificationEntity> b,
+                                                          Comparator<SNMPNotificationEntity> order) {
+        return new Iterator<>() {
+            private SNMPNotificationEntity nextA = a.hasNext() ? a.next() : null;
+            private SNMPNotificationEntity nextB = b.hasNext() ? b.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextA != null || nextB != null;
+            }
+
+            @Override
+            public SNMPNotificationEntity next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                SNMPNotificationEntity result;
+                if (nextB == null || (nextA != null && order.compare(nextA, nextB) <= 0)) {
+                    result = nextA;
+                    nextA = a.hasNext() ? a.next() : null;
+                    // Equal ids sort equal, so a copy in the other sequence is at its head
+                    if (nextB != null && nextB.getId().equals(result.getId())) {
+                        nextB = b.hasNext() ? b.next() : null;
+                    }
+                } else {
+                    result = nextB;
+                    nextB = b.hasNext() ? b.next() : null;
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Parses a cursor returned as {@code nextCursor}; null for the first page.
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    static Keyset parseCursor(String cursor, SortKey sortKey) {
+        if (cursor == null) {
+            return null;
+        }
+        if (sortKey == SortKey.ID) {
+            return new Keyset(null, requireObjectId(cursor, cursor));
+        }
+        int separator = cursor.indexOf('-');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        Instant timestamp;
+        try {
+            timestamp = Instant.ofEpochMilli(Long.parseLong(cursor.substring(0, separator)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        return new Keyset(timestamp, requireObjectId(cursor.substring(separator + 1), cursor));
+    }
+
+    /** Builds the query for the page after {@code after}, combining the keyset condition with the given filters. */
+    Query keysetQuery(List<Criteria> filters, Keyset after, SortKey sortKey, Sort.Direction direction) {
+        List<Criteria> conditions = new ArrayList<>(filters);
+        boolean asc = direction == Sort.Direction.ASC;
+        if (after != null && sortKey == SortKey.ID) {
+            conditions.add(asc ? Criteria.where("_id").gt(after.id()) : Criteria.where("_id").lt(after.id()));
+        } else if (after != null) {
+            Instant timestamp = after.timestamp();
+            String id = after.id();
+            conditions.add(new Criteria().orOperator(
+                    asc ? Criteria.where("timestamp").gt(timestamp) : Criteria.where("timestamp").lt(timestamp),
+                    asc ? Criteria.where("timestamp").is(timestamp).and("_id").gt(id)
+                            : Criteria.where("timestamp").is(timestamp).and("_id").lt(id)));
+        }
+
+        Query query = new Query();
+        if (conditions.size() == 1) {
+            query.addCriteria(conditions.get(0));
+        } else if (conditions.size() > 1) {
+            query.addCriteria(new Criteria().andOperator(conditions));
+        }
+        return sortKey == SortKey.ID
+                ? query.with(Sort.by(direction, "_id"))
+                : query.with(Sort.by(direction, "timestamp", "_id"));
+    }
+
+    private static String requireObjectId(String id, String cursor) {
+        if (!ObjectId.isValid(id)) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        return id;
+    }
+
+    static String cursorOf(SNMPNotificationEntity last, SortKey sortKey) {
+        if (sortKey == SortKey.ID) {
+            return last.getId();
+        }
+        long millis = last.getTimestamp() == null ? 0 : last.getTimestamp().toEpochMilli();
+        return millis + "-" + last.getId();
+    }
+}
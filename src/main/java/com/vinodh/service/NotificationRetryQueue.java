@@ -0,0 +1,306 @@
+package com.vinodh.service;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.vinodh.entity.SNMPNotificationEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries notifications whose Mongo write failed transiently (connection loss, timeouts, elections).
+ * A failed entity is scheduled with exponential backoff and full jitter, so a burst of failures does not
+ * come back as one burst; the retrier hands every entity that is due at once back to the batch writer,
+ * where they share bulk inserts. The caller's future completes only when a retry is acknowledged.
+ * Entities that fail permanently, or are still failing after {@code traps.retry.max-attempts}, go to the
+ * {@link DeadLetterStore} and the future fails with a {@link DeadLetteredException}. With
+ * {@code traps.retry.enabled=false} nothing is retried, but failed entities are still dead-lettered.
+ * {@link #submitDurable} is for callers that keep the entity durably themselves (the WAL): transient failures
+ * are retried without an attempt limit and only permanent ones are dead-lettered.
+ */
+@Service
+public class NotificationRetryQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationRetryQueue.class);
+
+    @Autowired
+    private NotificationBatchWriter batchWriter;
+
+    @Autowired
+    private DeadLetterStore deadLetters;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.retry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${traps.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${traps.retry.initial-backoff-ms:200}")
+    private long initialBackoffMs;
+
+    @Value("${traps.retry.max-backoff-ms:10000}")
+    private long maxBackoffMs;
+
+    @Value("${traps.retry.batch-size:500}")
+    private int batchSize;
+
+    @Value("${traps.retry.capacity:20000}")
+    private int capacity;
+
+    private final DelayQueue<Retry> queue = new DelayQueue<>();
+    private Thread retrier;
+    private volatile boolean running;
+
+    private Counter scheduled;
+    private Counter recovered;
+    private Counter exhausted;
+    private Counter permanent;
+    private Counter overflow;
+    private Counter replayed;
+    private DistributionSummary retryBatchSize;
+
+    /** One failed entity waiting for its next attempt; {@code attempts} counts the writes tried so far. */
+    private static final class Retry implements Delayed {
+        final SNMPNotificationEntity entity;
+        final CompletableFuture<Void> result;
+        final int attempts;
+        final boolean durable;
+        final long dueAt;
+
+        Retry(SNMPNotificationEntity entity, CompletableFuture<Void> result, int attempts, boolean durable, long dueAt) {
+            this.entity = entity;
+            this.result = result;
+            this.attempts = attempts;
+            this.durable = durable;
+            this.dueAt = dueAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((Retry) other).dueAt);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        scheduled = Counter.builder("snmp_retry_scheduled")
+                .description("Notification writes scheduled for another attempt")
+                .register(registry);
+        recovered = outcome("recovered");
+        exhausted = outcome("exhausted");
+        permanent = outcome("permanent");
+        overflow = outcome("overflow");
+        replayed = Counter.builder("snmp_dead_letters_replayed")
+                .description("Dead letters resubmitted for another write")
+                .register(registry);
+        retryBatchSize = DistributionSummary.builder("snmp_retry_batch_size")
+                .description("Notifications handed back to the batch writer per retry round")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        Gauge.builder("snmp_retry_queue_depth", queue, DelayQueue::size)
+                .description("Notifications waiting for their next write attempt")
+                .register(registry);
+
+        // Started even with retries disabled: WAL drains still retry transient failures
+        running = true;
+        retrier = Thread.ofPlatform()
+                .name("notification-retrier")
+                .daemon(true)
+                .start(this::retryLoop);
+        log.info("🔁 Notification retry queue started: enabled={}, maxAttempts={}, backoff={}..{} ms, batchSize={}, capacity={}",
+                enabled, maxAttempts, initialBackoffMs, maxBackoffMs, batchSize, capacity);
+    }
+
+    private Counter outcome(String outcome) {
+        return Counter.builder("snmp_retry_outcomes")
+                .tag("outcome", outcome)
+                .description("Notifications that left the retry path, by how")
+                .register(registry);
+    }
+
+    /**
+     * Queues the entity for the next bulk insert. The future completes once it is stored, possibly after
+     * retries, and fails once it has been dead-lettered.
+     */
+    public CompletableFuture<Void> submit(SNMPNotificationEntity entity) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        attempt(entity, result, 1, false);
+        return result;
+    }
+
+    /**
+     * As {@link #submit}, but transient failures are retried until they succeed. The future fails with a
+     * {@link DeadLetteredException} for permanent failures, or with the last error if the queue shuts down first.
+     */
+    public CompletableFuture<Void> submitDurable(SNMPNotificationEntity entity) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        attempt(entity, result, 1, true);
+        return result;
+    }
+
+    /**
+     * Takes the given dead letters, or up to {@code limit} of the oldest when ids is empty, out of the
+     * {@link DeadLetterStore} and writes them again with a fresh attempt budget; returns how many were resubmitted.
+     * Ids are kept, so an entity that did reach Mongo meanwhile is a harmless duplicate key.
+     */
+    public int replay(Collection<String> ids, int limit) {
+        List<SNMPNotificationEntity> entities = deadLetters.take(ids, limit);
+        entities.forEach(this::submit);
+        replayed.increment(entities.size());
+        if (!entities.isEmpty()) {
+            log.info("🔁 Replaying {} dead-lettered notifications", entities.size());
+        }
+        return entities.size();
+    }
+
+    private void attempt(SNMPNotificationEntity entity, CompletableFuture<Void> result, int attempt, boolean durable) {
+        batchWriter.submit(entity).whenComplete((v, error) -> {
+            if (error == null) {
+                if (attempt > 1) {
+                    recovered.increment();
+                }
+                result.complete(null);
+            } else {
+                failed(entity, result, attempt, durable, error);
+            }
+        });
+    }
+
+    private void failed(SNMPNotificationEntity entity, CompletableFuture<Void> result, int attempts, boolean durable,
+                        Throwable error) {
+        if (error instanceof WriteQueueFullException && !durable) {
+            // Refused without being stored; the sender is asked to resend rather than the entity dead-lettered
+            result.completeExceptionally(error);
+        } else if (!isTransient(error)) {
+            permanent.increment();
+            deadLetter(entity, result, attempts, error);
+        } else if (durable) {
+            if (running) {
+                scheduled.increment();
+                queue.add(new Retry(entity, result, attempts, true, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs(attempts))));
+            } else {
+                // The caller still holds the entity and writes it again after the restart
+                result.completeExceptionally(error);
+            }
+        } else if (!enabled || attempts >= maxAttempts || !running) {
+            // Also the path for every transient failure when traps.retry.enabled is false
+            exhausted.increment();
+            deadLetter(entity, result, attempts, error);
+        } else if (queue.size() >= capacity) {
+            // Already retrying as much as we hold; a longer queue would only delay the dead letter
+            overflow.increment();
+            deadLetter(entity, result, attempts, error);
+        } else {
+            scheduled.increment();
+            queue.add(new Retry(entity, result, attempts, false, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs(attempts))));
+        }
+    }
+
+    private void deadLetter(SNMPNotificationEntity entity, CompletableFuture<Void> result, int attempts, Throwable error) {
+        deadLetters.add(entity, error, attempts);
+        result.completeExceptionally(new DeadLetteredException(attempts, error));
+    }
+
+    // Full jitter: uniform over [0, min(max, initial * 2^(attempts - 1))]
+    private long backoffMs(int attempts) {
+        long ceiling = initialBackoffMs << Math.min(attempts - 1, 30);
+        if (ceiling <= 0 || ceiling > maxBackoffMs) {
+            ceiling = maxBackoffMs;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void retryLoop() {
+        List<Retry> due = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Retry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                due.add(first);
+                // Only entries whose delay has expired are drained
+                queue.drainTo(due, batchSize - 1);
+                retryBatchSize.record(due.size());
+                log.debug("🔁 Retrying {} notification writes", due.size());
+                for (Retry retry : due) {
+                    attempt(retry.entity, retry.result, retry.attempts + 1, retry.durable);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("❌ Unexpected error in notification retrier: {}", e.getMessage(), e);
+            } finally {
+                due.clear();
+            }
+        }
+    }
+
+    /** Whether the write may succeed if tried again: a full write queue, connectivity, timeouts and errors Mongo labels retryable. */
+    static boolean isTransient(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof WriteQueueFullException
+                    || t instanceof TransientDataAccessException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof MongoSocketException
+                    || t instanceof MongoTimeoutException) {
+                return true;
+            }
+            if (t instanceof MongoException mongo
+                    && (mongo.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+                    || mongo.hasErrorLabel("RetryableWriteError"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (retrier != null) {
+            retrier.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // drainTo and poll only return entries that are due, so take the rest through the iterator
+        List<Retry> pending = new ArrayList<>(queue);
+        queue.clear();
+        IllegalStateException shutDown = new IllegalStateException("Retry queue is shut down");
+        for (Retry retry : pending) {
+            if (retry.durable) {
+                retry.result.completeExceptionally(shutDown);
+            } else {
+                deadLetter(retry.entity, retry.result, retry.attempts, shutDown);
+            }
+        }
+        log.info("🔁 Notification retry queue stopped, {} pending retries abandoned", pending.size());
+    }
+}
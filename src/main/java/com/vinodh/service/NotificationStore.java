@@ -0,0 +1,27 @@
+package com.vinodh.service;
+
+import com.vinodh.entity.SNMPNotificationEntity;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Writes of the ingest path: bulk inserts from the {@link NotificationBatchWriter} and folded repeat
+ * counts from the {@link TrapDeduplicator}. {@link MongoNotificationStore} is the implementation;
+ * {@link MongoStandIn} replaces it for load tests.
+ */
+public interface NotificationStore {
+
+    /** Repeat count and last-seen time to set on one stored record. */
+    record CountUpdate(String entityId, int count, Instant lastSeen) {}
+
+    /** Unordered bulk insert; documents rejected individually surface as a bulk write exception. */
+    void insert(List<SNMPNotificationEntity> entities);
+
+    /** As {@link #insert}, completing from the driver's callback instead of blocking the caller. */
+    Mono<Void> insertReactive(List<SNMPNotificationEntity> entities);
+
+    /** Applies the counts in one bulk update; returns the ids of records that are not stored (yet). */
+    List<String> updateCounts(List<CountUpdate> updates);
+}
@@ -0,0 +1,120 @@
+package com.vinodh.service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queues, one per {@link TrapPriority}, drained with weighted shares.
+ * Each drain first gives every priority up to its share of the batch (at least one slot), then fills
+ * what is left from the most urgent queue down, so urgent writes dominate a batch while the others
+ * still make progress. A full queue only blocks producers of its own priority.
+ */
+final class PriorityWriteQueue<T> {
+
+    private final ArrayBlockingQueue<T>[] queues;
+    private final int[] weights;
+    private final int totalWeight;
+    private final AtomicInteger size = new AtomicInteger();
+    // Flushers parked in awaitNotEmpty; producers only take the lock to wake them
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    @SuppressWarnings("unchecked")
+    PriorityWriteQueue(int capacityPerPriority, int[] weights) {
+        this.weights = weights.clone();
+        this.queues = new ArrayBlockingQueue[weights.length];
+        int total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            queues[i] = new ArrayBlockingQueue<>(capacityPerPriority);
+            total += weights[i];
+        }
+        this.totalWeight = Math.max(1, total);
+    }
+
+    void put(T item, TrapPriority priority) throws InterruptedException {
+        queues[priority.ordinal()].put(item);
+        size.incrementAndGet();
+        signal();
+    }
+
+    private void signal() {
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Queues the item without waiting; false if its priority's queue is full. */
+    boolean offer(T item, TrapPriority priority) {
+        if (!queues[priority.ordinal()].offer(item)) {
+            return false;
+        }
+        size.incrementAndGet();
+        signal();
+        return true;
+    }
+
+    /** Waits up to {@code nanos} for anything to be queued; true if something is. */
+    boolean awaitNotEmpty(long nanos) throws InterruptedException {
+        if (size.get() > 0) {
+            return true;
+        }
+        lock.lock();
+        try {
+            // Registered before re-checking, so a producer either sees the waiter or the check sees its item
+            waiters.incrementAndGet();
+            try {
+                while (size.get() == 0 && nanos > 0) {
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+            return size.get() > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Moves up to {@code max} items into {@code batch}; returns true if any came from the most urgent queue. */
+    boolean drainTo(List<T> batch, int max) {
+        int budget = max;
+        int taken = 0;
+        boolean urgent = false;
+        for (int p = 0; p < queues.length && budget > 0; p++) {
+            int share = (int) Math.max(1, (long) max * weights[p] / totalWeight);
+            int n = queues[p].drainTo(batch, Math.min(share, budget));
+            urgent |= p == 0 && n > 0;
+            taken += n;
+            budget -= n;
+        }
+        for (int p = 0; p < queues.length && budget > 0; p++) {
+            int n = queues[p].drainTo(batch, budget);
+            urgent |= p == 0 && n > 0;
+            taken += n;
+            budget -= n;
+        }
+        size.addAndGet(-taken);
+        return urgent;
+    }
+
+    boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    int size(TrapPriority priority) {
+        return queues[priority.ordinal()].size();
+    }
+}
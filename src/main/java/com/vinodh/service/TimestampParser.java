@@ -0,0 +1,87 @@
+package com.vinodh.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses trap timestamps once at ingest. Collectors send either epoch milliseconds or ISO-8601;
+ * both become an {@link Instant}. What happens to anything else is set by
+ * {@code traps.timestamp.on-invalid}: {@code reject} fails validation, {@code normalize}
+ * replaces the value with the server receive time.
+ */
+@Component
+public class TimestampParser {
+
+    // Epoch values below this are taken as seconds rather than milliseconds (year 2286 in seconds)
+    private static final long MAX_EPOCH_SECONDS = 9_999_999_999L;
+
+    @Value("${traps.timestamp.on-invalid:reject}")
+    private String onInvalid;
+
+    private boolean reject;
+
+    @PostConstruct
+    void init() {
+        switch (onInvalid) {
+            case "reject" -> reject = true;
+            case "normalize" -> reject = false;
+            default -> throw new IllegalStateException("Unknown traps.timestamp.on-invalid: " + onInvalid);
+        }
+    }
+
+    /**
+     * Parses the trap timestamp, applying the configured policy to invalid values.
+     * @throws IllegalArgumentException if the value is invalid and the policy is {@code reject}
+     */
+    public Instant parse(String raw) {
+        Instant instant = tryParse(raw);
+        if (instant != null) {
+            return instant;
+        }
+        if (reject) {
+            throw new IllegalArgumentException("Invalid timestamp: '" + raw + "'");
+        }
+        return Instant.now();
+    }
+
+    /** Parses the timestamp, falling back to the receive time; used where the trap must be stored anyway. */
+    public Instant parseOrNow(String raw) {
+        Instant instant = tryParse(raw);
+        return instant != null ? instant : Instant.now();
+    }
+
+    /** Epoch seconds, epoch millis or ISO-8601 (with offset or 'Z'); null if none of them. */
+    public static Instant tryParse(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return null;
+        }
+        String value = raw.trim();
+        if (isDigits(value)) {
+            try {
+                long epoch = Long.parseLong(value);
+                return epoch <= MAX_EPOCH_SECONDS ? Instant.ofEpochSecond(epoch) : Instant.ofEpochMilli(epoch);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        try {
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,301 @@
+package com.vinodh.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Trap-storm suppression in front of persistence.
+ * Identical (deviceId, oid, value) traps seen within the window are folded into the first stored
+ * record: only that record is written, and when its time bucket expires the occurrence count and
+ * last-seen time are applied to it with one bulk update. A record is only folded into once its write
+ * has been acknowledged ({@link #track}); repeats arriving before that are stored as records of their own,
+ * so a failed or dead-lettered original takes no acknowledged repeats with it. Counts whose record is not
+ * in Mongo yet (still in the WAL or being retried) are applied again on later sweeps.
+ * Keys are kept as 64-bit hashes in a ring of time buckets, and the number of tracked keys is capped so
+ * memory stays bounded during a storm.
+ */
+@Service
+public class TrapDeduplicator {
+
+    private static final Logger log = LoggerFactory.getLogger(TrapDeduplicator.class);
+
+    // Marks an occurrence whose bucket has been evicted; later increments see a negative count
+    private static final int EVICTED = Integer.MIN_VALUE;
+
+    // Sweeps a folded count is retried for while its record has not reached Mongo
+    private static final int MAX_APPLY_ATTEMPTS = 30;
+
+    @Autowired
+    private NotificationStore store;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.dedup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${traps.dedup.window-seconds:60}")
+    private long windowSeconds;
+
+    @Value("${traps.dedup.buckets:6}")
+    private int buckets;
+
+    @Value("${traps.dedup.max-entries:200000}")
+    private int maxEntries;
+
+    private long windowMillis;
+    private long bucketMillis;
+    private AtomicReferenceArray<Bucket> ring;
+    private final AtomicInteger tracked = new AtomicInteger();
+    // Counts from evicted buckets not applied yet; only touched by the sweeper thread, and by stop()
+    private final Queue<FoldedCount> unapplied = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService sweeper;
+
+    private Counter stored;
+    private Counter suppressed;
+    private Counter overflow;
+    private Counter lostCounts;
+
+    private record Bucket(long epoch, Map<Long, Occurrence> occurrences) {}
+
+    /** Repeat count and last-seen time to set on one stored record. */
+    private record FoldedCount(String entityId, int count, Instant lastSeen, int attempts) {}
+
+    private static final class Occurrence {
+        final String entityId;
+        final AtomicInteger count = new AtomicInteger(1);
+        volatile long lastSeen;
+
+        Occurrence(String entityId, long now) {
+            this.entityId = entityId;
+            this.lastSeen = now;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        stored = Counter.builder("snmp_dedup_stored")
+                .description("Notifications stored as a new record")
+                .register(registry);
+        suppressed = Counter.builder("snmp_dedup_suppressed")
+                .description("Notifications folded into an earlier identical record")
+                .register(registry);
+        overflow = Counter.builder("snmp_dedup_overflow")
+                .description("Notifications stored untracked because the dedup table was full")
+                .register(registry);
+        lostCounts = Counter.builder("snmp_dedup_lost_counts")
+                .description("Folded repeat counts given up on because their record never reached Mongo")
+                .register(registry);
+        Gauge.builder("snmp_dedup_tracked_keys", tracked, AtomicInteger::get)
+                .description("Distinct (deviceId, oid, value) keys inside the dedup window")
+                .register(registry);
+
+        if (!enabled) {
+            return;
+        }
+        windowMillis = TimeUnit.SECONDS.toMillis(windowSeconds);
+        bucketMillis = Math.max(1, windowMillis / buckets);
+        // One spare bucket so the full window stays visible while the newest bucket fills
+        ring = new AtomicReferenceArray<>(buckets + 1);
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, new Bucket(epoch - ring.length(), new ConcurrentHashMap<>()));
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("dedup-sweeper").daemon(true).factory());
+        sweeper.scheduleWithFixedDelay(this::sweep, bucketMillis, bucketMillis, TimeUnit.MILLISECONDS);
+        log.info("🧹 Trap dedup enabled: window={}s, buckets={}, maxEntries={}", windowSeconds, buckets, maxEntries);
+    }
+
+    /**
+     * Returns true if an identical trap was stored within the window; the trap is then counted on
+     * that record and must not be stored.
+     */
+    public boolean fold(String deviceId, String oid, String value) {
+        if (!enabled) {
+            stored.increment();
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long key = hash(deviceId, oid, value);
+        long epoch = now / bucketMillis;
+
+        for (long e = epoch; e > epoch - ring.length(); e--) {
+            Bucket bucket = ring.get(slot(e));
+            if (bucket.epoch() == e && countRepeat(bucket.occurrences().get(key), now)) {
+                return true;
+            }
+        }
+        stored.increment();
+        return false;
+    }
+
+    /**
+     * Tracks a trap whose write has been acknowledged under {@code entityId}, so identical traps
+     * within the window fold into it. Does nothing if an identical trap is already tracked.
+     */
+    public void track(String deviceId, String oid, String value, String entityId) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long key = hash(deviceId, oid, value);
+        long epoch = now / bucketMillis;
+
+        for (long e = epoch; e > epoch - ring.length(); e--) {
+            Bucket bucket = ring.get(slot(e));
+            Occurrence occurrence = bucket.epoch() == e ? bucket.occurrences().get(key) : null;
+            if (occurrence != null && now - occurrence.lastSeen <= windowMillis && occurrence.count.get() > 0) {
+                return;
+            }
+        }
+        if (tracked.get() >= maxEntries) {
+            overflow.increment();
+            return;
+        }
+        if (current(epoch).occurrences().putIfAbsent(key, new Occurrence(entityId, now)) == null) {
+            tracked.incrementAndGet();
+        }
+    }
+
+    private boolean countRepeat(Occurrence occurrence, long now) {
+        if (occurrence == null || now - occurrence.lastSeen > windowMillis || occurrence.count.incrementAndGet() <= 0) {
+            return false;
+        }
+        occurrence.lastSeen = now;
+        suppressed.increment();
+        return true;
+    }
+
+    private int slot(long epoch) {
+        return (int) (epoch % ring.length());
+    }
+
+    private Bucket current(long epoch) {
+        int slot = slot(epoch);
+        Bucket bucket = ring.get(slot);
+        while (bucket.epoch() != epoch) {
+            Bucket expired = bucket;
+            Bucket fresh = new Bucket(epoch, new ConcurrentHashMap<>());
+            if (ring.compareAndSet(slot, expired, fresh)) {
+                sweeper.execute(() -> evict(expired));
+                return fresh;
+            }
+            bucket = ring.get(slot);
+        }
+        return bucket;
+    }
+
+    // Evicts buckets that fell out of the window even when no new traps arrive
+    private void sweep() {
+        long oldest = System.currentTimeMillis() / bucketMillis - buckets;
+        for (int slot = 0; slot < ring.length(); slot++) {
+            Bucket bucket = ring.get(slot);
+            if (bucket.epoch() < oldest && !bucket.occurrences().isEmpty()
+                    && ring.compareAndSet(slot, bucket, new Bucket(bucket.epoch(), new ConcurrentHashMap<>()))) {
+                evict(bucket);
+            }
+        }
+        List<FoldedCount> retries = new ArrayList<>();
+        for (int i = unapplied.size(); i > 0; i--) {
+            FoldedCount count = unapplied.poll();
+            if (count == null) {
+                break;
+            }
+            retries.add(count);
+        }
+        apply(retries);
+    }
+
+    // Applies the folded counts of an expired bucket to the stored records in one bulk update
+    private void evict(Bucket bucket) {
+        List<FoldedCount> counts = new ArrayList<>();
+        for (Occurrence occurrence : bucket.occurrences().values()) {
+            int count = occurrence.count.getAndSet(EVICTED);
+            tracked.decrementAndGet();
+            if (count > 1) {
+                counts.add(new FoldedCount(occurrence.entityId, count, Instant.ofEpochMilli(occurrence.lastSeen), 0));
+            }
+        }
+        apply(counts);
+    }
+
+    // Sets are idempotent, so counts whose record did not match, or a whole failed update, are simply retried later
+    private void apply(List<FoldedCount> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        List<NotificationStore.CountUpdate> updates = counts.stream()
+                .map(count -> new NotificationStore.CountUpdate(count.entityId(), count.count(), count.lastSeen()))
+                .toList();
+        try {
+            Set<String> missing = Set.copyOf(store.updateCounts(updates));
+            counts.stream().filter(count -> missing.contains(count.entityId())).forEach(this::requeue);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Failed to apply {} folded trap counts, retrying on the next sweep: {}", counts.size(), e.getMessage());
+            counts.forEach(this::requeue);
+        }
+    }
+
+    private void requeue(FoldedCount count) {
+        if (count.attempts() + 1 >= MAX_APPLY_ATTEMPTS) {
+            lostCounts.increment();
+            log.warn("⚠️ Record {} still not in Mongo after {} sweeps, dropping its {} folded repeats",
+                    count.entityId(), MAX_APPLY_ATTEMPTS, count.count() - 1);
+            return;
+        }
+        unapplied.add(new FoldedCount(count.entityId(), count.count(), count.lastSeen(), count.attempts() + 1));
+    }
+
+    // 64-bit FNV-1a over the three fields, separated so ("ab","c") and ("a","bc") differ
+    private static long hash(String deviceId, String oid, String value) {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, deviceId);
+        h = mix(h, oid);
+        return mix(h, value);
+    }
+
+    private static long mix(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= 0xff;
+        return h * 0x100000001b3L;
+    }
+
+    @PreDestroy
+    void stop() {
+        if (!enabled) {
+            return;
+        }
+        sweeper.shutdown();
+        for (int slot = 0; slot < ring.length(); slot++) {
+            evict(ring.getAndSet(slot, new Bucket(Long.MIN_VALUE, new ConcurrentHashMap<>())));
+        }
+        if (!unapplied.isEmpty()) {
+            log.warn("⚠️ {} folded trap counts not applied at shutdown", unapplied.size());
+        }
+    }
+}
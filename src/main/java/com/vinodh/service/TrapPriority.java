@@ -0,0 +1,13 @@
+package com.vinodh.service;
+
+import java.util.Locale;
+
+/** Scheduling class of a trap, from most to least urgent; see {@link TrapPriorityClassifier}. */
+public enum TrapPriority {
+    CRITICAL, NORMAL, BULK;
+
+    /** Lower-case name used as the metric tag. */
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
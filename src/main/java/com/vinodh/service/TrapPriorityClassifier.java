@@ -0,0 +1,119 @@
+package com.vinodh.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps a trap OID to its {@link TrapPriority} from the configured OID subtrees
+ * ({@code traps.priority.critical-oids} and {@code traps.priority.bulk-oids}); the longest matching
+ * subtree wins and anything unmatched is {@link TrapPriority#NORMAL}. Results are cached per OID.
+ * Also holds the per-priority receive-to-ack latency histograms.
+ */
+@Component
+public class TrapPriorityClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(TrapPriorityClassifier.class);
+
+    // OIDs cached beyond this are classified on every call
+    private static final int MAX_CACHED = 10_000;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.priority.enabled:true}")
+    private boolean enabled;
+
+    // coldStart, warmStart, linkDown, linkUp
+    @Value("${traps.priority.critical-oids:1.3.6.1.6.3.1.1.5.1,1.3.6.1.6.3.1.1.5.2,1.3.6.1.6.3.1.1.5.3,1.3.6.1.6.3.1.1.5.4}")
+    private String criticalOids;
+
+    @Value("${traps.priority.bulk-oids:}")
+    private String bulkOids;
+
+    private record Rule(int[] prefix, TrapPriority priority) {}
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Map<String, TrapPriority> cache = new ConcurrentHashMap<>();
+    private final Timer[] latency = new Timer[TrapPriority.values().length];
+
+    @PostConstruct
+    void init() {
+        addRules(criticalOids, TrapPriority.CRITICAL);
+        addRules(bulkOids, TrapPriority.BULK);
+        for (TrapPriority priority : TrapPriority.values()) {
+            latency[priority.ordinal()] = Timer.builder("snmp_priority_latency")
+                    .tag("priority", priority.tag())
+                    .description("Time from receipt to acknowledgement of a notification, by trap priority")
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .register(registry);
+        }
+        log.info("🚨 Trap priorities {}: {} critical, {} bulk OID subtrees", enabled ? "enabled" : "disabled",
+                rules.stream().filter(rule -> rule.priority() == TrapPriority.CRITICAL).count(),
+                rules.stream().filter(rule -> rule.priority() == TrapPriority.BULK).count());
+    }
+
+    private void addRules(String oids, TrapPriority priority) {
+        for (String oid : oids.split(",")) {
+            String trimmed = oid.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int[] arcs = InternDictionary.parseArcs(trimmed.startsWith(".") ? trimmed.substring(1) : trimmed);
+            if (arcs == null) {
+                throw new IllegalStateException("Not a numeric OID in traps.priority: " + trimmed);
+            }
+            rules.add(new Rule(arcs, priority));
+        }
+    }
+
+    public TrapPriority classify(String oid) {
+        if (!enabled || rules.isEmpty()) {
+            return TrapPriority.NORMAL;
+        }
+        TrapPriority cached = cache.get(oid);
+        if (cached != null) {
+            return cached;
+        }
+        TrapPriority priority = match(oid);
+        if (cache.size() < MAX_CACHED) {
+            cache.put(oid, priority);
+        }
+        return priority;
+    }
+
+    /** Records how long a notification of the given priority took from receipt to its acknowledgement. */
+    public void recordLatency(TrapPriority priority, long nanos) {
+        latency[priority.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private TrapPriority match(String oid) {
+        int[] arcs = InternDictionary.parseArcs(oid.startsWith(".") ? oid.substring(1) : oid);
+        if (arcs == null) {
+            return TrapPriority.NORMAL;
+        }
+        TrapPriority best = TrapPriority.NORMAL;
+        int bestLength = -1;
+        for (Rule rule : rules) {
+            int length = rule.prefix().length;
+            if (length > bestLength && arcs.length >= length && Arrays.equals(arcs, 0, length, rule.prefix(), 0, length)) {
+                best = rule.priority();
+                bestLength = length;
+            }
+        }
+        return best;
+    }
+}
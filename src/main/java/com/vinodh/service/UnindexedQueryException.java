@@ -0,0 +1,11 @@
+package com.vinodh.service;
+
+/**
+ * Thrown when a query on a large collection would be answered with a full collection scan.
+ */
+public class UnindexedQueryException extends RuntimeException {
+
+    public UnindexedQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.vinodh.service;
+
+/**
+ * Fails a write refused because the batch writer's queue for its priority is full; nothing was stored
+ * and the notification may be sent again later.
+ */
+public class WriteQueueFullException extends RuntimeException {
+
+    public WriteQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,185 @@
+package com.vinodh.snmp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads BER-encoded values straight out of a (direct) receive buffer using absolute offsets,
+ * so nothing is copied before decoding. Only the single-byte tags and definite lengths used by
+ * SNMP are supported.
+ */
+final class BerReader {
+
+    static final int INTEGER = 0x02;
+    static final int OCTET_STRING = 0x04;
+    static final int NULL = 0x05;
+    static final int OBJECT_IDENTIFIER = 0x06;
+    static final int SEQUENCE = 0x30;
+    static final int IP_ADDRESS = 0x40;
+    static final int COUNTER32 = 0x41;
+    static final int GAUGE32 = 0x42;
+    static final int TIME_TICKS = 0x43;
+    static final int OPAQUE = 0x44;
+    static final int COUNTER64 = 0x46;
+    static final int NO_SUCH_OBJECT = 0x80;
+    static final int NO_SUCH_INSTANCE = 0x81;
+    static final int END_OF_MIB_VIEW = 0x82;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ByteBuffer buffer;
+    private int position;
+    private final int limit;
+    private int lastLength;
+
+    BerReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    int position() {
+        return position;
+    }
+
+    /** Reads a tag and its length and returns the tag; the value starts at {@link #position()}. */
+    int header() {
+        int tag = u8();
+        lastLength = readLength();
+        if (lastLength > limit - position) {
+            throw new BerException("Length " + lastLength + " of tag 0x" + Integer.toHexString(tag) + " runs past the datagram");
+        }
+        return tag;
+    }
+
+    /** Length of the value whose header was read last. */
+    int length() {
+        return lastLength;
+    }
+
+    /** Reads the header of the next element and checks its tag; returns the value length. */
+    int expect(int tag) {
+        int actual = header();
+        if (actual != tag) {
+            throw new BerException("Expected tag 0x" + Integer.toHexString(tag) + " but found 0x" + Integer.toHexString(actual));
+        }
+        return lastLength;
+    }
+
+    private int readLength() {
+        int first = u8();
+        if (first < 0x80) {
+            return first;
+        }
+        int bytes = first & 0x7F;
+        if (bytes == 0 || bytes > 4) {
+            throw new BerException("Unsupported BER length encoding 0x" + Integer.toHexString(first));
+        }
+        int length = 0;
+        for (int i = 0; i < bytes; i++) {
+            length = (length << 8) | u8();
+        }
+        if (length < 0) {
+            throw new BerException("Negative BER length");
+        }
+        return length;
+    }
+
+    void skip(int length) {
+        position += length;
+    }
+
+    /** Two's-complement integer of the given length. */
+    long integer(int length) {
+        if (length < 1 || length > 9) {
+            throw new BerException("Unsupported integer length " + length);
+        }
+        long value = (byte) u8(); // sign-extends the first byte
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | u8();
+        }
+        return value;
+    }
+
+    /** Unsigned integer (Counter32, Gauge32, TimeTicks, Counter64) of the given length. */
+    long unsigned(int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | u8();
+        }
+        return value;
+    }
+
+    /** Appends the dotted form of the OID value of the given length. */
+    StringBuilder oid(int length, StringBuilder out) {
+        int end = position + length;
+        if (length == 0) {
+            throw new BerException("Empty OID");
+        }
+        boolean first = true;
+        while (position < end) {
+            long arc = 0;
+            int b;
+            do {
+                if (position >= end) {
+                    throw new BerException("Truncated OID arc");
+                }
+                b = u8();
+                arc = (arc << 7) | (b & 0x7F);
+            } while ((b & 0x80) != 0);
+            if (first) {
+                // The first subidentifier packs the first two arcs as 40 * X + Y
+                long x = Math.min(arc / 40, 2);
+                out.append(x).append('.').append(arc - 40 * x);
+                first = false;
+            } else {
+                out.append('.').append(arc);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Appends an OCTET STRING: as text if every byte is printable ASCII, otherwise as {@code 0x}-prefixed hex.
+     */
+    StringBuilder octets(int length, StringBuilder out) {
+        boolean printable = true;
+        for (int i = 0; i < length && printable; i++) {
+            int b = buffer.get(position + i) & 0xFF;
+            printable = (b >= 0x20 && b < 0x7F) || b == '\t' || b == '\r' || b == '\n';
+        }
+        if (printable) {
+            for (int i = 0; i < length; i++) {
+                out.append((char) u8());
+            }
+        } else {
+            out.append("0x");
+            for (int i = 0; i < length; i++) {
+                int b = u8();
+                out.append(HEX[b >>> 4]).append(HEX[b & 0x0F]);
+            }
+        }
+        return out;
+    }
+
+    /** Appends a 4-byte IpAddress in dotted-quad form. */
+    StringBuilder ipAddress(int length, StringBuilder out) {
+        if (length != 4) {
+            throw new BerException("IpAddress of " + length + " bytes");
+        }
+        return out.append(u8()).append('.').append(u8()).append('.').append(u8()).append('.').append(u8());
+    }
+
+    private int u8() {
+        if (position >= limit) {
+            throw new BerException("Datagram truncated");
+        }
+        return buffer.get(position++) & 0xFF;
+    }
+
+    /** A datagram that is not valid BER or not a supported SNMP message. */
+    static final class BerException extends RuntimeException {
+        BerException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.vinodh.snmp;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Fixed set of direct receive buffers, allocated once at startup. A datagram stays in its buffer
+ * until it has been decoded; when every buffer is in use the receiver drops instead of allocating.
+ */
+final class DirectBufferPool {
+
+    private final ArrayBlockingQueue<ByteBuffer> free;
+
+    DirectBufferPool(int buffers, int bufferBytes) {
+        free = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            free.add(ByteBuffer.allocateDirect(bufferBytes));
+        }
+    }
+
+    /** A cleared buffer, or null if all are in use. */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        return buffer == null ? null : buffer.clear();
+    }
+
+    void release(ByteBuffer buffer) {
+        free.offer(buffer);
+    }
+
+    int available() {
+        return free.size();
+    }
+}
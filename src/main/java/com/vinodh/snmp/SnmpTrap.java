@@ -0,0 +1,10 @@
+package com.vinodh.snmp;
+
+/**
+ * A decoded SNMPv1 or SNMPv2c trap.
+ *
+ * @param agent    address of the device that sent it: the v1 agent-addr, or the datagram source
+ * @param trapOid  v2c snmpTrapOID.0, or for v1 the equivalent OID per RFC 3584
+ * @param varbinds the remaining variable bindings as {@code oid=value, ...}
+ */
+record SnmpTrap(int version, String community, String agent, String trapOid, String varbinds) {}
@@ -0,0 +1,140 @@
+package com.vinodh.snmp;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+import static com.vinodh.snmp.BerReader.*;
+
+/**
+ * Decodes SNMPv1 Trap-PDUs and SNMPv2c SNMPv2-Trap-PDUs from a received datagram.
+ * InformRequests (which need a Response) and SNMPv3 are not supported.
+ */
+final class SnmpTrapDecoder {
+
+    private static final int TRAP_V1 = 0xA4;
+    private static final int INFORM = 0xA6;
+    private static final int TRAP_V2 = 0xA7;
+
+    private static final String SYS_UP_TIME = "1.3.6.1.2.1.1.3.0";
+    private static final String SNMP_TRAP_OID = "1.3.6.1.6.3.1.1.4.1.0";
+    // RFC 3584 section 3.1: generic trap N (other than enterpriseSpecific) maps to snmpTraps.(N + 1)
+    private static final String SNMP_TRAPS = "1.3.6.1.6.3.1.1.5.";
+
+    private SnmpTrapDecoder() {
+    }
+
+    /**
+     * Decodes the datagram between the buffer's position and limit.
+     * @throws BerReader.BerException if it is not a well-formed SNMP message
+     * @throws UnsupportedTrapException if it is well-formed but not a v1/v2c trap
+     */
+    static SnmpTrap decode(ByteBuffer datagram, InetAddress source) {
+        BerReader ber = new BerReader(datagram);
+        ber.expect(SEQUENCE);
+        long version = ber.integer(ber.expect(INTEGER));
+        if (version != 0 && version != 1) {
+            throw new UnsupportedTrapException("SNMP version " + (version == 3 ? "3" : String.valueOf(version + 1)));
+        }
+        String community = ber.octets(ber.expect(OCTET_STRING), new StringBuilder()).toString();
+
+        int pdu = ber.header();
+        return switch (pdu) {
+            case TRAP_V1 -> {
+                if (version != 0) {
+                    throw new BerException("v1 Trap-PDU in an SNMPv2c message");
+                }
+                yield decodeV1(ber, community, source);
+            }
+            case TRAP_V2 -> {
+                if (version != 1) {
+                    throw new BerException("SNMPv2-Trap-PDU in an SNMPv1 message");
+                }
+                yield decodeV2(ber, community, source);
+            }
+            case INFORM -> throw new UnsupportedTrapException("InformRequest");
+            default -> throw new UnsupportedTrapException("PDU type 0x" + Integer.toHexString(pdu));
+        };
+    }
+
+    private static SnmpTrap decodeV1(BerReader ber, String community, InetAddress source) {
+        String enterprise = ber.oid(ber.expect(OBJECT_IDENTIFIER), new StringBuilder()).toString();
+        String agentAddress = ber.ipAddress(ber.expect(IP_ADDRESS), new StringBuilder()).toString();
+        long generic = ber.integer(ber.expect(INTEGER));
+        long specific = ber.integer(ber.expect(INTEGER));
+        ber.skip(ber.expect(TIME_TICKS));
+
+        String trapOid = generic == 6 ? enterprise + ".0." + specific : SNMP_TRAPS + (generic + 1);
+        // Agents behind NAT or without a configured address send 0.0.0.0
+        String agent = agentAddress.equals("0.0.0.0") ? source.getHostAddress() : agentAddress;
+        StringBuilder varbinds = new StringBuilder();
+        ber.expect(SEQUENCE);
+        int end = ber.position() + ber.length();
+        while (ber.position() < end) {
+            varbind(ber, new StringBuilder(), varbinds);
+        }
+        return new SnmpTrap(0, community, agent, trapOid, varbinds.toString());
+    }
+
+    private static SnmpTrap decodeV2(BerReader ber, String community, InetAddress source) {
+        ber.skip(ber.expect(INTEGER)); // request-id
+        ber.skip(ber.expect(INTEGER)); // error-status
+        ber.skip(ber.expect(INTEGER)); // error-index
+
+        String trapOid = null;
+        StringBuilder varbinds = new StringBuilder();
+        ber.expect(SEQUENCE);
+        int end = ber.position() + ber.length();
+        StringBuilder name = new StringBuilder();
+        while (ber.position() < end) {
+            name.setLength(0);
+            int mark = varbinds.length();
+            varbind(ber, name, varbinds);
+            // sysUpTime.0 and snmpTrapOID.0 are part of every v2 trap, not of its payload
+            if (SYS_UP_TIME.contentEquals(name)) {
+                varbinds.setLength(mark);
+            } else if (SNMP_TRAP_OID.contentEquals(name)) {
+                int start = varbinds.indexOf("=", mark) + 1;
+                trapOid = varbinds.substring(start);
+                varbinds.setLength(mark);
+            }
+        }
+        if (trapOid == null) {
+            throw new BerException("SNMPv2-Trap-PDU without snmpTrapOID.0");
+        }
+        return new SnmpTrap(1, community, source.getHostAddress(), trapOid, varbinds.toString());
+    }
+
+    // Appends ", name=value" (without the separator for the first one) and leaves the name in {@code name}
+    private static void varbind(BerReader ber, StringBuilder name, StringBuilder out) {
+        ber.expect(SEQUENCE);
+        ber.oid(ber.expect(OBJECT_IDENTIFIER), name);
+        if (!out.isEmpty()) {
+            out.append(", ");
+        }
+        out.append(name).append('=');
+        int tag = ber.header();
+        int length = ber.length();
+        switch (tag) {
+            case INTEGER -> out.append(ber.integer(length));
+            case OCTET_STRING, OPAQUE -> ber.octets(length, out);
+            case OBJECT_IDENTIFIER -> ber.oid(length, out);
+            case IP_ADDRESS -> ber.ipAddress(length, out);
+            case COUNTER32, GAUGE32, TIME_TICKS, COUNTER64 -> out.append(ber.unsigned(length));
+            case NULL -> ber.skip(length);
+            case NO_SUCH_OBJECT -> out.append("noSuchObject");
+            case NO_SUCH_INSTANCE -> out.append("noSuchInstance");
+            case END_OF_MIB_VIEW -> out.append("endOfMibView");
+            default -> {
+                out.append("tag0x").append(Integer.toHexString(tag));
+                ber.skip(length);
+            }
+        }
+    }
+
+    /** A well-formed SNMP message that is not a v1/v2c trap. */
+    static final class UnsupportedTrapException extends RuntimeException {
+        UnsupportedTrapException(String message) {
+            super(message);
+        }
+    }
+}
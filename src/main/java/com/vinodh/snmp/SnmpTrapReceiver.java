@@ -0,0 +1,335 @@
+package com.vinodh.snmp;
+
+import com.vinodh.SNMPNotification;
+import com.vinodh.cluster.ShardRouter;
+import com.vinodh.logging.HotPathLogger;
+import com.vinodh.service.NotificationIngestPipeline;
+import com.vinodh.service.TrapPriorityClassifier;
+import com.vinodh.tracing.NotificationTracing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Built-in SNMPv1/v2c trap listener on UDP, feeding the same {@link NotificationIngestPipeline} as the gRPC streams.
+ * <p>
+ * Each socket has one platform thread that only receives: datagrams land in pooled direct buffers and are
+ * decoded in place on a virtual thread, which then hands the trap to the {@link ShardRouter} with the agent address
+ * as deviceId, the trap OID as oid, the variable bindings as value and the receive time as timestamp, so with
+ * clustering on it is processed by the instance owning the device, like traps arriving over gRPC.
+ * Datagrams are dropped and counted per socket and reason when no buffer is free, when
+ * {@code traps.snmp.max-in-flight} traps are already being processed, or when they cannot be decoded.
+ * With {@code traps.snmp.sockets} above one, the sockets share the port through {@code SO_REUSEPORT}
+ * so the kernel spreads senders across them. UDP gives no ordering, so traps of one device may be
+ * processed out of order.
+ */
+@Component
+public class SnmpTrapReceiver {
+
+    private static final Logger log = LoggerFactory.getLogger(SnmpTrapReceiver.class);
+
+    private static final ExecutorService DECODERS =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("snmp-decode-", 0).factory());
+
+    enum DropReason { NO_BUFFER, OVERLOAD, TRUNCATED, MALFORMED, UNSUPPORTED, COMMUNITY }
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private NotificationTracing tracing;
+
+    @Autowired
+    private TrapPriorityClassifier priorities;
+
+    @Autowired
+    private HotPathLogger hotLog;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.snmp.enabled:false}")
+    private boolean enabled;
+
+    @Value("${traps.snmp.bind-address:0.0.0.0}")
+    private String bindAddress;
+
+    @Value("${traps.snmp.port:1162}")
+    private int port;
+
+    @Value("${traps.snmp.sockets:1}")
+    private int socketCount;
+
+    @Value("${traps.snmp.receive-buffer-kb:4096}")
+    private int receiveBufferKb;
+
+    @Value("${traps.snmp.max-packet-bytes:8192}")
+    private int maxPacketBytes;
+
+    @Value("${traps.snmp.buffers:1024}")
+    private int bufferCount;
+
+    @Value("${traps.snmp.max-in-flight:20000}")
+    private int maxInFlight;
+
+    // Empty accepts any community
+    @Value("${traps.snmp.community:}")
+    private String community;
+
+    @Value("${traps.snmp.span-interval-ms:1000}")
+    private long spanIntervalMs;
+
+    private DirectBufferPool pool;
+    private Semaphore inFlight;
+    private final List<TrapSocket> sockets = new ArrayList<>();
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        pool = new DirectBufferPool(bufferCount, maxPacketBytes);
+        inFlight = new Semaphore(maxInFlight);
+        Gauge.builder("snmp_udp_buffers_free", pool, DirectBufferPool::available)
+                .description("Pooled receive buffers not holding a datagram")
+                .register(registry);
+        Gauge.builder("snmp_udp_in_flight", inFlight, permits -> maxInFlight - permits.availablePermits())
+                .description("Received traps being decoded or processed")
+                .register(registry);
+
+        InetSocketAddress address = new InetSocketAddress(bindAddress, port);
+        running = true;
+        for (int i = 0; i < socketCount; i++) {
+            DatagramChannel channel = DatagramChannel.open(address.getAddress() instanceof Inet6Address
+                    ? StandardProtocolFamily.INET6 : StandardProtocolFamily.INET);
+            if (socketCount > 1) {
+                if (!channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                    channel.close();
+                    throw new IllegalStateException("traps.snmp.sockets > 1 needs SO_REUSEPORT, which this platform lacks");
+                }
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferKb * 1024);
+            channel.bind(address);
+            TrapSocket socket = new TrapSocket("udp-" + i, channel);
+            sockets.add(socket);
+            socket.thread = Thread.ofPlatform().name("snmp-receiver-" + i).daemon(true).start(socket);
+        }
+        log.info("📡 SNMP trap receiver listening on {} with {} socket(s), {} x {} B buffers",
+                address, socketCount, bufferCount, maxPacketBytes);
+    }
+
+    /** One bound socket, its receive loop and its counters. */
+    private final class TrapSocket implements Runnable {
+        private final String name;
+        private final DatagramChannel channel;
+        private final Counter received;
+        private final Counter receivedBytes;
+        private final Map<DropReason, Counter> dropped = new EnumMap<>(DropReason.class);
+        private final Counter processed;
+        private final Counter validationErrors;
+        private final Counter internalErrors;
+        // Receives datagrams that are dropped because every pooled buffer is in use
+        private final ByteBuffer overflow = ByteBuffer.allocateDirect(maxPacketBytes);
+        private Thread thread;
+        // One span per socket and interval, touched only by the receive thread
+        private NotificationTracing.Trace trace;
+        private long traceStarted;
+
+        TrapSocket(String name, DatagramChannel channel) {
+            this.name = name;
+            this.channel = channel;
+            received = Counter.builder("snmp_udp_received")
+                    .tag("socket", name)
+                    .description("Datagrams received on the SNMP trap socket")
+                    .register(registry);
+            receivedBytes = Counter.builder("snmp_udp_received_bytes")
+                    .tag("socket", name)
+                    .baseUnit("bytes")
+                    .description("Bytes received on the SNMP trap socket")
+                    .register(registry);
+            for (DropReason reason : DropReason.values()) {
+                dropped.put(reason, Counter.builder("snmp_udp_dropped")
+                        .tag("socket", name)
+                        .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                        .description("Datagrams dropped by the SNMP trap receiver")
+                        .register(registry));
+            }
+            processed = outcome("processed");
+            validationErrors = outcome("validation_error");
+            internalErrors = outcome("internal_error");
+        }
+
+        private Counter outcome(String outcome) {
+            return Counter.builder("snmp_udp_traps")
+                    .tag("socket", name)
+                    .tag("outcome", outcome)
+                    .description("Decoded SNMP traps by pipeline outcome")
+                    .register(registry);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    receive();
+                } catch (ClosedChannelException e) {
+                    return;
+                } catch (Exception e) {
+                    log.error("❌ SNMP receive failed on {}: {}", name, e.getMessage(), e);
+                }
+            }
+        }
+
+        private void receive() throws IOException {
+            ByteBuffer buffer = pool.acquire();
+            if (buffer == null) {
+                overflow.clear();
+                channel.receive(overflow);
+                received.increment();
+                receivedBytes.increment(overflow.position());
+                dropped.get(DropReason.NO_BUFFER).increment();
+                return;
+            }
+            InetSocketAddress source;
+            try {
+                source = (InetSocketAddress) channel.receive(buffer);
+            } catch (IOException e) {
+                pool.release(buffer);
+                throw e;
+            }
+            long receivedAt = System.currentTimeMillis();
+            received.increment();
+            receivedBytes.increment(buffer.position());
+            if (!buffer.hasRemaining()) {
+                // Filled the buffer: the kernel silently cut off the rest of the datagram
+                drop(DropReason.TRUNCATED, buffer);
+                return;
+            }
+            if (!inFlight.tryAcquire()) {
+                drop(DropReason.OVERLOAD, buffer);
+                return;
+            }
+            buffer.flip();
+            NotificationTracing.Trace span = span();
+            DECODERS.execute(() -> handle(buffer, source, receivedAt, span));
+        }
+
+        private void drop(DropReason reason, ByteBuffer buffer) {
+            pool.release(buffer);
+            dropped.get(reason).increment();
+        }
+
+        private NotificationTracing.Trace span() {
+            long now = System.nanoTime();
+            if (trace == null || now - traceStarted >= TimeUnit.MILLISECONDS.toNanos(spanIntervalMs)) {
+                if (trace != null) {
+                    trace.end();
+                }
+                trace = tracing.start("snmp.trap.udp");
+                traceStarted = now;
+            }
+            return trace;
+        }
+
+        private void handle(ByteBuffer buffer, InetSocketAddress source, long receivedAt, NotificationTracing.Trace span) {
+            SnmpTrap trap;
+            try {
+                trap = SnmpTrapDecoder.decode(buffer, source.getAddress());
+            } catch (SnmpTrapDecoder.UnsupportedTrapException e) {
+                reject(DropReason.UNSUPPORTED, source, e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                reject(DropReason.MALFORMED, source, e.getMessage());
+                return;
+            } finally {
+                pool.release(buffer);
+            }
+            if (!community.isEmpty() && !community.equals(trap.community())) {
+                reject(DropReason.COMMUNITY, source, "community mismatch");
+                return;
+            }
+            SNMPNotification notification = SNMPNotification.newBuilder()
+                    .setDeviceId(trap.agent())
+                    .setOid(trap.trapOid())
+                    .setValue(trap.varbinds())
+                    .setTimestamp(Long.toString(receivedAt))
+                    .build();
+            router.process(notification, priorities.classify(trap.trapOid()), span,
+                    new NotificationIngestPipeline.Outcome() {
+                        @Override
+                        public void processed() {
+                            processed.increment();
+                        }
+
+                        @Override
+                        public void validationFailed(String reason) {
+                            validationErrors.increment();
+                        }
+
+                        @Override
+                        public void internalError(Throwable e) {
+                            internalErrors.increment();
+                        }
+                    }, false).whenComplete((v, ex) -> {
+                        inFlight.release();
+                        if (ex != null) {
+                            log.error("❌ Error completing SNMP trap from {}: {}", trap.agent(), ex.getMessage(), ex);
+                        }
+                    });
+        }
+
+        private void reject(DropReason reason, InetSocketAddress source, String detail) {
+            inFlight.release();
+            dropped.get(reason).increment();
+            String sender = source.getAddress().getHostAddress();
+            hotLog.warn(log, sender, "⚠️ Dropped SNMP datagram from {} on {} ({}): {}", sender, name, reason, detail);
+        }
+
+        void close() throws IOException, InterruptedException {
+            channel.close();
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+            if (trace != null) {
+                trace.end();
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        for (TrapSocket socket : sockets) {
+            socket.close();
+        }
+        log.info("📡 SNMP trap receiver stopped");
+    }
+}
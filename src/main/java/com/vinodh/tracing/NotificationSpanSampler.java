@@ -0,0 +1,147 @@
+package com.vinodh.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.exporter.FinishedSpan;
+import io.micrometer.tracing.exporter.SpanExportingPredicate;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tail-based export decision for finished spans, applied to every exporter by Spring Boot.
+ * Spans are all recorded ({@code management.tracing.sampling.probability: 1.0}) and decided here once
+ * they end: errors and slow spans are always exported, and so are later spans of the same trace,
+ * such as the stream span that ends after a failing batch. Everything else is exported up to
+ * {@code traps.tracing.rate-per-second}.
+ */
+@Component
+public class NotificationSpanSampler implements SpanExportingPredicate {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private NotificationTracing tracing;
+
+    @Value("${traps.tracing.sampler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${traps.tracing.rate-per-second:10}")
+    private int ratePerSecond;
+
+    @Value("${traps.tracing.kept-traces:4096}")
+    private int keptTraces;
+
+    // Recently kept trace ids; the ring bounds the set by evicting the oldest id
+    private final Set<String> kept = ConcurrentHashMap.newKeySet();
+    private AtomicReferenceArray<String> keptRing;
+    private final AtomicLong keptIndex = new AtomicLong();
+
+    // Current second and spans admitted in it, packed as (second << 32 | count) for one CAS
+    private final AtomicLong rateWindow = new AtomicLong();
+
+    private Counter sampledError;
+    private Counter sampledSlow;
+    private Counter sampledTrace;
+    private Counter sampledRate;
+    private Counter dropped;
+
+    @PostConstruct
+    void init() {
+        keptRing = new AtomicReferenceArray<>(keptTraces);
+        sampledError = sampled("error");
+        sampledSlow = sampled("slow");
+        sampledTrace = sampled("trace");
+        sampledRate = sampled("rate");
+        dropped = Counter.builder("snmp_trace_spans_dropped")
+                .description("Finished spans not exported by the tail sampler")
+                .register(registry);
+    }
+
+    private Counter sampled(String reason) {
+        return Counter.builder("snmp_trace_spans_sampled")
+                .tag("reason", reason)
+                .description("Finished spans exported by the tail sampler, by reason")
+                .register(registry);
+    }
+
+    @Override
+    public boolean isExportable(FinishedSpan span) {
+        if (!enabled) {
+            return true;
+        }
+        if (isError(span)) {
+            keep(span.getTraceId());
+            sampledError.increment();
+            return true;
+        }
+        if (isSlow(span)) {
+            keep(span.getTraceId());
+            sampledSlow.increment();
+            return true;
+        }
+        if (kept.contains(span.getTraceId())) {
+            sampledTrace.increment();
+            return true;
+        }
+        if (admit()) {
+            sampledRate.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private static boolean isError(FinishedSpan span) {
+        Map<String, String> tags = span.getTags();
+        return span.getError() != null || tags.containsKey("error") || tags.containsKey("exception")
+                || NotificationTracing.OUTCOME_ERROR.equals(tags.get(NotificationTracing.OUTCOME));
+    }
+
+    private boolean isSlow(FinishedSpan span) {
+        if (NotificationTracing.OUTCOME_SLOW.equals(span.getTags().get(NotificationTracing.OUTCOME))) {
+            return true;
+        }
+        // Stream spans, ours and the gRPC server span, live as long as the client stays connected,
+        // so their duration says nothing about whether a trap was slow
+        if (span.getTags().containsKey(NotificationTracing.OUTCOME) || span.getKind() == Span.Kind.SERVER) {
+            return false;
+        }
+        return Duration.between(span.getStartTimestamp(), span.getEndTimestamp()).toNanos() >= tracing.slowThresholdNanos();
+    }
+
+    private void keep(String traceId) {
+        if (!kept.add(traceId)) {
+            return;
+        }
+        int slot = (int) (keptIndex.getAndIncrement() % keptRing.length());
+        String evicted = keptRing.getAndSet(slot, traceId);
+        if (evicted != null) {
+            kept.remove(evicted);
+        }
+    }
+
+    private boolean admit() {
+        long second = System.currentTimeMillis() / 1000;
+        while (true) {
+            long current = rateWindow.get();
+            long count = current >>> 32 == second ? current & 0xFFFFFFFFL : 0;
+            if (count >= ratePerSecond) {
+                return false;
+            }
+            if (rateWindow.compareAndSet(current, second << 32 | (count + 1))) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.vinodh.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One span per gRPC stream or per notification batch instead of one per notification.
+ * Per-notification outcomes become events on that span, capped per span. They are tagged so
+ * {@link NotificationSpanSampler} can keep error and slow spans whatever the rate limit.
+ */
+@Component
+public class NotificationTracing {
+
+    static final String OUTCOME = "snmp.outcome";
+    static final String OUTCOME_ERROR = "error";
+    static final String OUTCOME_SLOW = "slow";
+
+    private static final Observation.Event VALIDATION_ERROR = Observation.Event.of("validation_error");
+    private static final Observation.Event INTERNAL_ERROR = Observation.Event.of("internal_error");
+    private static final Observation.Event SLOW_NOTIFICATION = Observation.Event.of("slow_notification");
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    @Value("${traps.tracing.slow-threshold-ms:500}")
+    private long slowThresholdMs;
+
+    @Value("${traps.tracing.max-events-per-span:32}")
+    private int maxEventsPerSpan;
+
+    /** Starts the span of a stream or batch; {@link Trace#end()} must be called once it is done. */
+    public Trace start(String name) {
+        return new Trace(Observation.start(name, observationRegistry));
+    }
+
+    long slowThresholdNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+    }
+
+    public final class Trace {
+        private final Observation observation;
+        private final AtomicInteger events = new AtomicInteger();
+        private final AtomicInteger validationErrors = new AtomicInteger();
+        private final AtomicInteger internalErrors = new AtomicInteger();
+        private final AtomicInteger slow = new AtomicInteger();
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private Trace(Observation observation) {
+            this.observation = observation;
+        }
+
+        /** Records how long one notification took; slow ones are kept as events. */
+        public void processed(long nanos) {
+            if (nanos >= slowThresholdNanos()) {
+                slow.incrementAndGet();
+                event(SLOW_NOTIFICATION);
+            }
+        }
+
+        public void validationError() {
+            validationErrors.incrementAndGet();
+            event(VALIDATION_ERROR);
+        }
+
+        public void internalError(Throwable error) {
+            // The first failure marks the span as errored; later ones are counted
+            if (internalErrors.getAndIncrement() == 0) {
+                observation.error(error);
+            }
+            event(INTERNAL_ERROR);
+        }
+
+        public void end() {
+            if (!ended.compareAndSet(false, true)) {
+                return;
+            }
+            String outcome = validationErrors.get() + internalErrors.get() > 0 ? OUTCOME_ERROR
+                    : slow.get() > 0 ? OUTCOME_SLOW : "ok";
+            observation.lowCardinalityKeyValue(OUTCOME, outcome)
+                    .highCardinalityKeyValue("snmp.validation_errors", String.valueOf(validationErrors.get()))
+                    .highCardinalityKeyValue("snmp.internal_errors", String.valueOf(internalErrors.get()))
+                    .highCardinalityKeyValue("snmp.slow_notifications", String.valueOf(slow.get()))
+                    .stop();
+        }
+
+        private void event(Observation.Event event) {
+            if (events.incrementAndGet() <= maxEventsPerSpan) {
+                observation.event(event);
+            }
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.vinodh.wal;
+
+import com.vinodh.entity.SNMPNotificationEntity;
+import com.vinodh.service.DeadLetteredException;
+import com.vinodh.service.InternDictionary;
+import com.vinodh.service.NotificationRetryQueue;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Append-only write-ahead log of notifications on memory-mapped segment files.
+ * When enabled, a notification is acknowledged as soon as it is in the WAL; a background drainer
+ * replays the log into Mongo through the {@link NotificationRetryQueue}, which retries transient failures
+ * for as long as Mongo is unavailable and dead-letters records Mongo rejects for good, so one bad record
+ * cannot hold up the drain. Segments are deleted once everything in them is in Mongo, and a
+ * checkpoint file records the drain position so unflushed records are replayed after a restart.
+ * Entities carry their id into the log, so a record replayed after a crash is rejected as a duplicate key
+ * instead of being stored twice. Records hold deviceId and OID as strings; they are interned into dictionary
+ * codes only as they are drained.
+ */
+@Service
+public class NotificationWal {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationWal.class);
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    @Autowired
+    private NotificationRetryQueue retries;
+
+    @Autowired
+    private InternDictionary dictionary;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${traps.wal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${traps.wal.directory:data/wal}")
+    private String directory;
+
+    @Value("${traps.wal.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${traps.wal.max-segments:64}")
+    private int maxSegments;
+
+    @Value("${traps.wal.force-interval-ms:1000}")
+    private long forceIntervalMs;
+
+    @Value("${traps.wal.drain-batch-size:500}")
+    private int drainBatchSize;
+
+    private Path walDir;
+    private final ConcurrentSkipListMap<Long, WalSegment> segments = new ConcurrentSkipListMap<>();
+    private WalSegment active; // guarded by this
+
+    // Drain cursor, only touched by the drainer thread
+    private long readSegmentId;
+    private int readPosition;
+
+    private Thread drainer;
+    private ScheduledExecutorService forcer;
+    private volatile boolean running;
+
+    private Counter appended;
+    private Counter drained;
+    private Counter deadLettered;
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        walDir = Paths.get(directory);
+        Files.createDirectories(walDir);
+
+        try (Stream<Path> files = Files.list(walDir)) {
+            for (Path file : files.filter(WalSegment::isSegmentFile).toList()) {
+                WalSegment segment = WalSegment.recover(file);
+                segments.put(segment.id, segment);
+            }
+        }
+        long nextId = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        active = WalSegment.create(walDir, nextId, segmentSizeMb * 1024 * 1024);
+        segments.put(active.id, active);
+        restoreCheckpoint();
+
+        appended = Counter.builder("snmp_wal_appended")
+                .description("Notifications appended to the write-ahead log")
+                .register(registry);
+        drained = Counter.builder("snmp_wal_drained")
+                .description("Notifications drained from the write-ahead log into Mongo")
+                .register(registry);
+        deadLettered = Counter.builder("snmp_wal_dead_lettered")
+                .description("WAL records Mongo rejected for good, moved to the dead-letter store")
+                .register(registry);
+        Gauge.builder("snmp_wal_segments", segments, Map::size)
+                .description("WAL segment files on disk, including the active one")
+                .register(registry);
+
+        running = true;
+        drainer = Thread.ofPlatform().name("wal-drainer").daemon(true).start(this::drainLoop);
+        if (forceIntervalMs > 0) {
+            forcer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("wal-force").daemon(true).factory());
+            forcer.scheduleWithFixedDelay(this::forceActive, forceIntervalMs, forceIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        log.info("📒 WAL enabled in {}: {} segment(s), draining from segment {} offset {}",
+                walDir.toAbsolutePath(), segments.size(), readSegmentId, readPosition);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends the entity to the log. The returned future is already complete: the entity is durable
+     * in the mapped segment (and in the page cache) and will reach Mongo asynchronously.
+     */
+    public CompletableFuture<Void> append(SNMPNotificationEntity entity) {
+        byte[] payload = encode(entity);
+        try {
+            synchronized (this) {
+                if (!active.append(payload)) {
+                    roll();
+                    if (!active.append(payload)) {
+                        throw new IllegalArgumentException("Notification of " + payload.length + " bytes exceeds the WAL segment size");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException("WAL append failed", e));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        appended.increment();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Caller holds the WAL lock
+    private void roll() throws IOException {
+        if (segments.size() >= maxSegments) {
+            throw new IllegalStateException("WAL is full (" + maxSegments + " segments): Mongo drain is behind");
+        }
+        WalSegment sealed = active;
+        sealed.force();
+        sealed.seal();
+        active = WalSegment.create(walDir, sealed.id + 1, segmentSizeMb * 1024 * 1024);
+        segments.put(active.id, active);
+        log.info("📒 WAL rolled to segment {}", active.id);
+    }
+
+    private void forceActive() {
+        WalSegment segment;
+        synchronized (this) {
+            segment = active;
+        }
+        segment.force();
+    }
+
+    private void drainLoop() {
+        List<SNMPNotificationEntity> chunk = new ArrayList<>(drainBatchSize);
+        while (running) {
+            try {
+                readChunk(chunk);
+                if (chunk.isEmpty()) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+                    continue;
+                }
+                if (!persist(chunk)) {
+                    // Shutting down: the checkpoint is not advanced, the chunk is replayed on the next start
+                    return;
+                }
+                drained.increment(chunk.size());
+                saveCheckpoint();
+                deleteDrainedSegments();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("❌ WAL drain failed: {}", e.getMessage(), e);
+            } finally {
+                chunk.clear();
+            }
+        }
+    }
+
+    private void readChunk(List<SNMPNotificationEntity> chunk) {
+        while (chunk.size() < drainBatchSize) {
+            WalSegment segment = segments.get(readSegmentId);
+            if (segment == null) {
+                return;
+            }
+            // Read sealed before writePosition: a sealed segment's write position is final
+            boolean sealed = segment.isSealed();
+            int limit = segment.writePosition();
+            if (readPosition < limit) {
+                byte[] payload = segment.read(readPosition);
+                if (payload != null) {
+                    chunk.add(decode(payload));
+                    readPosition += WalSegment.HEADER_BYTES + payload.length;
+                    continue;
+                }
+                log.error("❌ Corrupt WAL record in segment {} at offset {}, skipping rest of segment", segment.id, readPosition);
+                if (!sealed) {
+                    return;
+                }
+            } else if (!sealed) {
+                return;
+            }
+            Long next = segments.higherKey(readSegmentId);
+            if (next == null) {
+                return;
+            }
+            readSegmentId = next;
+            readPosition = 0;
+        }
+    }
+
+    // Writes the chunk to Mongo; every record ends up stored or dead-lettered unless the WAL stops first
+    private boolean persist(List<SNMPNotificationEntity> chunk) throws InterruptedException {
+        List<CompletableFuture<Void>> acks = new ArrayList<>(chunk.size());
+        for (SNMPNotificationEntity entity : chunk) {
+            // Ids are kept, so a retry of an entity that did reach Mongo is a harmless duplicate key
+            dictionary.compact(entity);
+            acks.add(retries.submitDurable(entity));
+        }
+        int rejected = 0;
+        for (CompletableFuture<Void> ack : acks) {
+            while (true) {
+                try {
+                    ack.get(100, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    if (!running) {
+                        return false;
+                    }
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof DeadLetteredException)) {
+                        // Only a shutdown of the retry queue ends a transient failure
+                        return false;
+                    }
+                    rejected++;
+                    break;
+                }
+            }
+        }
+        if (rejected > 0) {
+            deadLettered.increment(rejected);
+            log.warn("⚠️ {} WAL records rejected by Mongo, moved to the dead-letter store", rejected);
+        }
+        return true;
+    }
+
+    private void deleteDrainedSegments() throws IOException {
+        for (Long id : segments.headMap(readSegmentId).keySet()) {
+            WalSegment segment = segments.remove(id);
+            segment.delete();
+            log.info("🗑️ WAL segment {} fully drained to Mongo, deleted", id);
+        }
+    }
+
+    private void saveCheckpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        buffer.putLong(readSegmentId).putInt(readPosition);
+        Path tmp = walDir.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.write(tmp, buffer.array());
+        Files.move(tmp, walDir.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void restoreCheckpoint() throws IOException {
+        readSegmentId = segments.firstKey();
+        readPosition = 0;
+        Path file = walDir.resolve(CHECKPOINT_FILE);
+        if (Files.exists(file)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            long segmentId = buffer.getLong();
+            int position = buffer.getInt();
+            if (segments.containsKey(segmentId)) {
+                readSegmentId = segmentId;
+                readPosition = position;
+            }
+        }
+        deleteDrainedSegments();
+    }
+
+    static byte[] encode(SNMPNotificationEntity entity) {
+        byte[][] fields = {
+                utf8(entity.getId()),
+                utf8(entity.getDeviceId()),
+                utf8(entity.getOid()),
+                utf8(entity.getValue()),
+                utf8(entity.getErrorMessage())
+        };
+        int size = 1 + 3 * Integer.BYTES + 3 * Long.BYTES;
+        for (byte[] field : fields) {
+            size += Integer.BYTES + (field == null ? 0 : field.length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put((byte) (entity.isProcessed() ? 1 : 0));
+        buffer.putInt(entity.getOccurrenceCount());
+        buffer.putInt(entity.getDeviceCode() == null ? -1 : entity.getDeviceCode());
+        buffer.putInt(entity.getOidCode() == null ? -1 : entity.getOidCode());
+        buffer.putLong(epochMillis(entity.getFirstSeen()));
+        buffer.putLong(epochMillis(entity.getLastSeen()));
+        buffer.putLong(epochMillis(entity.getTimestamp()));
+        for (byte[] field : fields) {
+            if (field == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(field.length).put(field);
+            }
+        }
+        return buffer.array();
+    }
+
+    static SNMPNotificationEntity decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        boolean processed = buffer.get() == 1;
+        int occurrenceCount = buffer.getInt();
+        int deviceCode = buffer.getInt();
+        int oidCode = buffer.getInt();
+        Instant firstSeen = instant(buffer.getLong());
+        Instant lastSeen = instant(buffer.getLong());
+        Instant timestamp = instant(buffer.getLong());
+        String id = readString(buffer);
+        String deviceId = readString(buffer);
+        String oid = readString(buffer);
+        String value = readString(buffer);
+        String errorMessage = readString(buffer);
+        SNMPNotificationEntity entity = new SNMPNotificationEntity(deviceId, oid, value, timestamp, processed, errorMessage);
+        entity.setId(id);
+        entity.setOccurrenceCount(occurrenceCount);
+        entity.setDeviceCode(deviceCode < 0 ? null : deviceCode);
+        entity.setOidCode(oidCode < 0 ? null : oidCode);
+        entity.setFirstSeen(firstSeen);
+        entity.setLastSeen(lastSeen);
+        return entity;
+    }
+
+    private static long epochMillis(Instant instant) {
+        return instant == null ? Long.MIN_VALUE : instant.toEpochMilli();
+    }
+
+    private static Instant instant(long epochMillis) {
+        return epochMillis == Long.MIN_VALUE ? null : Instant.ofEpochMilli(epochMillis);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        drainer.join(TimeUnit.SECONDS.toMillis(10));
+        if (forcer != null) {
+            forcer.shutdown();
+        }
+        forceActive();
+        log.info("📒 WAL stopped at segment {} offset {}", readSegmentId, readPosition);
+    }
+}
@@ -0,0 +1,130 @@
+package com.vinodh.wal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * One memory-mapped, fixed-size WAL segment file.
+ * Record layout: {@code [int length][int crc32][payload]}; a zero length marks the unwritten tail.
+ * All buffer access uses absolute offsets so the appender and the drainer can share the mapping.
+ */
+final class WalSegment {
+
+    static final int HEADER_BYTES = 8;
+
+    final long id;
+    final Path path;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    // Bytes published to readers; only the appender (holding the WAL lock) moves it
+    private volatile int writePosition;
+    // Set after the final writePosition, so a reader that sees sealed=true sees the final length
+    private volatile boolean sealed;
+
+    private WalSegment(long id, Path path, MappedByteBuffer buffer, int capacity) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    static Path fileFor(Path directory, long id) {
+        return directory.resolve(String.format("wal-%020d.log", id));
+    }
+
+    static long idOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("wal-".length(), name.length() - ".log".length()));
+    }
+
+    static boolean isSegmentFile(Path file) {
+        return file.getFileName().toString().matches("wal-\\d{20}\\.log");
+    }
+
+    static WalSegment create(Path directory, long id, int capacity) throws IOException {
+        Path path = fileFor(directory, id);
+        return new WalSegment(id, path, map(path, capacity), capacity);
+    }
+
+    /** Maps an existing segment left by a previous run, recovering its valid tail. It is sealed for writing. */
+    static WalSegment recover(Path path) throws IOException {
+        int capacity = (int) Files.size(path);
+        WalSegment segment = new WalSegment(idOf(path), path, map(path, capacity), capacity);
+        segment.writePosition = segment.scanValidTail();
+        segment.sealed = true;
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path path, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    /** Appends a record; returns false if it does not fit. Callers serialize appends. */
+    boolean append(byte[] payload) {
+        int position = writePosition;
+        if (position + HEADER_BYTES + payload.length > capacity) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.put(position + HEADER_BYTES, payload);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, payload.length);
+        writePosition = position + HEADER_BYTES + payload.length;
+        return true;
+    }
+
+    /** Returns the payload of the record at the given offset, or null if it is missing or corrupt. */
+    byte[] read(int position) {
+        if (position + HEADER_BYTES > capacity) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_BYTES + length > capacity) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(position + HEADER_BYTES, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(position + 4) ? payload : null;
+    }
+
+    private int scanValidTail() {
+        int position = 0;
+        byte[] payload;
+        while ((payload = read(position)) != null) {
+            position += HEADER_BYTES + payload.length;
+        }
+        return position;
+    }
+
+    int writePosition() {
+        return writePosition;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    void seal() {
+        sealed = true;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}